@@ -0,0 +1,384 @@
+package projeto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Máquina que aprende a jogar o 3x3 sozinha (Q-learning por autojogo, na linha do MENACE),
+ * em vez de seguir a lista fixa de prioridades do nível 2.
+ * O que ela sabe é uma tabela de valores Q(posição, jogada), do ponto de vista de quem joga,
+ * indexada pela forma canônica da posição (a mesma numeração ternária da {@link TabelaPerfeita}),
+ * então as 8 variantes simétricas de uma posição compartilham o aprendizado.
+ *
+ * No treino, várias threads jogam partidas contra si mesmas ao mesmo tempo e todas atualizam a
+ * mesma tabela: cada valor é um int (ponto fixo) num AtomicIntegerArray, atualizado por
+ * compareAndSet, sem travas. O alvo de cada jogada é a recompensa (vitória 1, empate 0) se ela
+ * encerra a partida, ou o negativo do melhor valor do adversário na posição seguinte. As threads
+ * só compartilham a tabela, então a vazão cresce com os núcleos.
+ * A tabela é gravada periodicamente (em arquivo temporário, trocado de uma vez) e pode ser
+ * carregada para jogar: {@link #estrategia()} pluga a máquina treinada numa partida ou num torneio.
+ *
+ * Formato do arquivo: cabeçalho de 16 bytes (a assinatura "JDVQ", a versão e a quantidade de
+ * partidas treinadas, um long) seguido dos 3^9 x 9 valores (int), em big-endian.
+ *
+ * Uso: java projeto.AprendizReforco treinar partidas [threads] [arquivo] [semente]
+ *      java projeto.AprendizReforco avaliar [arquivo]
+ *      java projeto.AprendizReforco jogar [arquivo]
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public class AprendizReforco {
+
+    // --- ATRIBUTOS --- //
+    static final String ARQUIVO_PADRAO = "aprendiz.q";
+    private static final int ASSINATURA = 0x4A445651; // "JDVQ"
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 16;
+    private static final int TOTAL_POSICOES = 19683; // 3^9
+    private static final int CASAS = 9;
+    private static final int TABULEIRO_CHEIO = 0x1FF;
+    // Valor 1,0 em ponto fixo. Cabe folgado num int mesmo somando diferenças.
+    private static final int ESCALA = 1 << 20;
+    // Taxa de aprendizado 1/2^PASSO: cada atualização anda 1/8 do caminho até o alvo.
+    private static final int PASSO = 3;
+    // Exploração: a chance de uma jogada aleatória cai de EXPLORACAO_INICIAL a EXPLORACAO_FINAL ao longo do treino.
+    private static final double EXPLORACAO_INICIAL = 0.5;
+    private static final double EXPLORACAO_FINAL = 0.05;
+    private static final long INTERVALO_GRAVACAO_MS = 5000;
+    // Constante de Weyl (razão áurea em 64 bits) usada para espalhar as sementes das threads.
+    private static final long GAMA = 0x9E3779B97F4A7C15L;
+
+    // Valores Q no índice indice(posição canônica) * 9 + jogada (nas coordenadas canônicas).
+    private final AtomicIntegerArray valores = new AtomicIntegerArray(TOTAL_POSICOES * CASAS);
+    private final LongAdder partidasTreinadas = new LongAdder();
+
+    /**
+     * Ponto de entrada: treina, avalia ou joga contra a tabela aprendida.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || (args[0].equals("treinar") && args.length < 2)) {
+            System.err.println("Uso: java projeto.AprendizReforco treinar partidas [threads] [arquivo] [semente]");
+            System.err.println("     java projeto.AprendizReforco avaliar [arquivo]");
+            System.err.println("     java projeto.AprendizReforco jogar [arquivo]");
+            System.exit(2);
+        }
+        switch (args[0]) {
+            case "treinar": {
+                long partidas = Long.parseLong(args[1]);
+                int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+                Path arquivo = Paths.get(args.length > 3 ? args[3] : ARQUIVO_PADRAO);
+                long semente = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+                // Continua de onde o último treino parou, se já houver tabela.
+                AprendizReforco aprendiz = Files.exists(arquivo) ? carregar(arquivo) : new AprendizReforco();
+                long inicio = System.nanoTime();
+                aprendiz.treinar(partidas, threads, semente, arquivo);
+                double segundos = (System.nanoTime() - inicio) / 1e9;
+                System.out.printf("%d partidas em %.2fs com %d threads: %.0f partidas/s (total treinado: %d)%n",
+                        partidas, segundos, threads, partidas / segundos, aprendiz.getPartidasTreinadas());
+                System.out.printf("Jogadas perfeitas: %.2f%% das posições%n", 100 * aprendiz.avaliar());
+                break;
+            }
+            case "avaliar": {
+                AprendizReforco aprendiz = carregar(Paths.get(args.length > 1 ? args[1] : ARQUIVO_PADRAO));
+                System.out.printf("%d partidas treinadas; jogadas perfeitas: %.2f%% das posições%n",
+                        aprendiz.getPartidasTreinadas(), 100 * aprendiz.avaliar());
+                break;
+            }
+            case "jogar":
+                carregar(Paths.get(args.length > 1 ? args[1] : ARQUIVO_PADRAO)).jogarNoConsole();
+                break;
+            default:
+                throw new IllegalArgumentException("Modo desconhecido: " + args[0]);
+        }
+    }
+
+    // --- TREINO --- //
+
+    /**
+     * Treina por autojogo, gravando a tabela periodicamente e no fim.
+     * @param partidas Quantas partidas jogar (somando as threads).
+     * @param threads Quantas threads jogam ao mesmo tempo.
+     * @param semente Semente dos sorteios (cada thread deriva a sua).
+     * @param arquivo Onde gravar a tabela, ou null para não gravar.
+     * @throws IOException Se a gravação falhar.
+     */
+    void treinar(long partidas, int threads, long semente, Path arquivo) throws InterruptedException, IOException {
+        if (partidas < 1) {
+            throw new IllegalArgumentException("O treino precisa de pelo menos 1 partida.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("O treino precisa de pelo menos 1 thread.");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> fatias = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            // As partidas são divididas igualmente; as primeiras threads ficam com a sobra.
+            long quantidade = partidas / threads + (t < partidas % threads ? 1 : 0);
+            SplittableRandom aleatorio = new SplittableRandom(semente + t * GAMA);
+            fatias.add(() -> {
+                treinarFatia(quantidade, aleatorio);
+                return null;
+            });
+        }
+        try {
+            List<Future<Void>> pendentes = new ArrayList<>();
+            for (Callable<Void> fatia : fatias) {
+                pendentes.add(executor.submit(fatia));
+            }
+            for (Future<Void> fatia : pendentes) {
+                while (true) {
+                    try {
+                        fatia.get(INTERVALO_GRAVACAO_MS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        if (arquivo != null) salvar(arquivo); // Ponto de restauração no meio do treino.
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha durante o treino.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (arquivo != null) {
+            salvar(arquivo);
+        }
+    }
+
+    /**
+     * Joga as partidas de uma thread, atualizando a tabela a cada jogada.
+     */
+    private void treinarFatia(long partidas, SplittableRandom aleatorio) {
+        for (long p = 0; p < partidas; p++) {
+            double exploracao = Math.max(EXPLORACAO_FINAL, EXPLORACAO_INICIAL * (1 - (double) p / partidas));
+            int daVez = 0, oponente = 0;
+            int canonica = Simetrias.canonizar(daVez, oponente);
+            while (true) {
+                int base = TabelaPerfeita.indice(canonica) * CASAS;
+                int[] simetria = Simetrias.SIMETRIAS[canonica >>> 18];
+                int livres = ~(daVez | oponente) & TABULEIRO_CHEIO;
+                int jogada = aleatorio.nextDouble() < exploracao
+                        ? enesimoBit(livres, aleatorio.nextInt(Integer.bitCount(livres)))
+                        : melhorLivre(base, simetria, livres);
+                int novoDaVez = daVez | (1 << jogada);
+                boolean terminou = true;
+                int alvo;
+                if (JogoDaVelha.verificaVencedor(novoDaVez)) {
+                    alvo = ESCALA;
+                } else if ((novoDaVez | oponente) == TABULEIRO_CHEIO) {
+                    alvo = 0;
+                } else {
+                    // Negamax: a jogada vale o contrário do que a melhor resposta vale para o adversário.
+                    canonica = Simetrias.canonizar(oponente, novoDaVez);
+                    alvo = -valores.get(TabelaPerfeita.indice(canonica) * CASAS
+                            + maiorValor(oponente, novoDaVez, canonica));
+                    terminou = false;
+                }
+                atualizar(base + simetria[jogada], alvo);
+                if (terminou) break;
+                daVez = oponente;
+                oponente = novoDaVez;
+            }
+            partidasTreinadas.increment();
+        }
+    }
+
+    /**
+     * Aproxima o valor do alvo, sem trava: se outra thread mudou o valor no meio, refaz a conta.
+     */
+    private void atualizar(int indice, int alvo) {
+        int antigo, novo;
+        do {
+            antigo = valores.get(indice);
+            novo = antigo + ((alvo - antigo) >> PASSO);
+        } while (!valores.compareAndSet(indice, antigo, novo));
+    }
+
+    // --- JOGO --- //
+
+    /**
+     * Retorna a jogada de maior valor aprendido para quem está na vez (sem explorar).
+     * @param daVez Máscara do jogador que vai jogar.
+     * @param oponente Máscara do adversário.
+     * @return A posição (0-8) escolhida.
+     */
+    int melhorJogada(int daVez, int oponente) {
+        int canonica = Simetrias.canonizar(daVez, oponente);
+        return melhorLivre(TabelaPerfeita.indice(canonica) * CASAS, Simetrias.SIMETRIAS[canonica >>> 18],
+                ~(daVez | oponente) & TABULEIRO_CHEIO);
+    }
+
+    /**
+     * Retorna a máquina treinada como estratégia, para {@link JogoDaVelha#setEstrategiaMaquina}
+     * ou para o {@link TorneioMaquinas}. Só joga no tabuleiro 3x3.
+     */
+    EstrategiaMaquina estrategia() {
+        return jogo -> {
+            if (!JogoDaVelha.ehClassico(jogo.getLargura(), jogo.getAltura(), jogo.getAlinhamento())) {
+                throw new IllegalArgumentException("A máquina treinada só joga no tabuleiro 3x3.");
+            }
+            int jogador = jogo.getJogadorAtual();
+            return melhorJogada(jogo.getMascara(jogador), jogo.getMascara(3 - jogador));
+        };
+    }
+
+    long getPartidasTreinadas() {
+        return partidasTreinadas.sum();
+    }
+
+    /**
+     * Mede o quanto a tabela aprendeu: a fração das posições canônicas alcançáveis (e não
+     * encerradas) em que a jogada escolhida mantém o resultado teórico da {@link TabelaPerfeita}.
+     * @return Um valor entre 0 e 1.
+     */
+    double avaliar() {
+        int posicoes = 0, perfeitas = 0;
+        for (int daVez = 0; daVez <= TABULEIRO_CHEIO; daVez++) {
+            for (int oponente = 0; oponente <= TABULEIRO_CHEIO; oponente++) {
+                int diferenca = Integer.bitCount(oponente) - Integer.bitCount(daVez);
+                if ((daVez & oponente) != 0 || (diferenca != 0 && diferenca != 1)) continue;
+                if ((daVez | oponente) == TABULEIRO_CHEIO || JogoDaVelha.verificaVencedor(daVez)
+                        || JogoDaVelha.verificaVencedor(oponente)) continue;
+                if ((Simetrias.canonizar(daVez, oponente) & 0x3FFFF) != (daVez | (oponente << 9))) continue;
+                posicoes++;
+                int jogada = melhorJogada(daVez, oponente);
+                int novoDaVez = daVez | (1 << jogada);
+                int obtido = JogoDaVelha.verificaVencedor(novoDaVez) ? 1
+                        : (novoDaVez | oponente) == TABULEIRO_CHEIO ? 0 : -TabelaPerfeita.resultado(oponente, novoDaVez);
+                if (obtido == TabelaPerfeita.resultado(daVez, oponente)) perfeitas++;
+            }
+        }
+        return (double) perfeitas / posicoes;
+    }
+
+    /**
+     * Partida no console contra a máquina treinada: o jogador humano é o 1 e digita as posições (0-8).
+     */
+    private void jogarNoConsole() throws IOException {
+        JogoDaVelha jogo = new JogoDaVelha("X", 1);
+        jogo.setEstrategiaMaquina(estrategia());
+        BufferedReader entrada = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        System.out.println(jogo.getFoto());
+        while (!jogo.terminou()) {
+            System.out.print("Sua jogada (0-8): ");
+            String linha = entrada.readLine();
+            if (linha == null) return;
+            try {
+                jogo.jogaJogador(1, Integer.parseInt(linha.trim()));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                System.out.println(e.getMessage());
+                continue;
+            }
+            if (!jogo.terminou()) jogo.jogaMaquina();
+            System.out.println(jogo.getFoto());
+        }
+        System.out.println(jogo.getResultado() == 0 ? "Empate!" : jogo.getResultado() == 1 ? "Você venceu!" : "A máquina venceu!");
+    }
+
+    // --- ARQUIVO --- //
+
+    /**
+     * Grava a tabela num arquivo temporário e o troca pelo destino de uma vez só, para que
+     * uma queda no meio da gravação nunca deixe um arquivo pela metade.
+     * @param destino Caminho do arquivo.
+     * @throws IOException Se não for possível gravar.
+     */
+    void salvar(Path destino) throws IOException {
+        ByteBuffer conteudo = ByteBuffer.allocate(TAMANHO_CABECALHO + 4 * valores.length()).order(ByteOrder.BIG_ENDIAN);
+        conteudo.putInt(ASSINATURA).putInt(VERSAO).putLong(getPartidasTreinadas());
+        for (int i = 0; i < valores.length(); i++) {
+            conteudo.putInt(valores.get(i));
+        }
+        conteudo.flip();
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (conteudo.hasRemaining()) {
+                canal.write(conteudo);
+            }
+            canal.force(true);
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carrega uma tabela gravada por {@link #salvar(Path)}.
+     * @param origem Caminho do arquivo.
+     * @return O aprendiz com a tabela carregada.
+     * @throws IOException Se o arquivo não puder ser lido ou não for uma tabela válida.
+     */
+    static AprendizReforco carregar(Path origem) throws IOException {
+        ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(origem)).order(ByteOrder.BIG_ENDIAN);
+        AprendizReforco aprendiz = new AprendizReforco();
+        if (conteudo.remaining() != TAMANHO_CABECALHO + 4 * aprendiz.valores.length()
+                || conteudo.getInt() != ASSINATURA || conteudo.getInt() != VERSAO) {
+            throw new IOException("O arquivo " + origem + " não é uma tabela do aprendiz.");
+        }
+        aprendiz.partidasTreinadas.add(conteudo.getLong());
+        for (int i = 0; i < aprendiz.valores.length(); i++) {
+            aprendiz.valores.set(i, conteudo.getInt());
+        }
+        return aprendiz;
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    /**
+     * A casa livre de maior valor (a primeira, em caso de empate).
+     * @param base Início dos valores da posição canônica na tabela.
+     * @param simetria A simetria que leva o tabuleiro real à forma canônica.
+     * @param livres Máscara das casas livres, nas coordenadas reais.
+     */
+    private int melhorLivre(int base, int[] simetria, int livres) {
+        int melhor = -1, melhorValor = Integer.MIN_VALUE;
+        for (int resto = livres; resto != 0; resto &= resto - 1) {
+            int casa = Integer.numberOfTrailingZeros(resto);
+            int valor = valores.get(base + simetria[casa]);
+            if (valor > melhorValor) {
+                melhorValor = valor;
+                melhor = casa;
+            }
+        }
+        return melhor;
+    }
+
+    /**
+     * A jogada, nas coordenadas canônicas, de maior valor para quem está na vez.
+     */
+    private int maiorValor(int daVez, int oponente, int canonica) {
+        int[] simetria = Simetrias.SIMETRIAS[canonica >>> 18];
+        return simetria[melhorLivre(TabelaPerfeita.indice(canonica) * CASAS, simetria, ~(daVez | oponente) & TABULEIRO_CHEIO)];
+    }
+
+    /**
+     * Posição do n-ésimo bit ligado (contando do 0).
+     */
+    private static int enesimoBit(int mascara, int n) {
+        for (int i = 0; i < n; i++) {
+            mascara &= mascara - 1;
+        }
+        return Integer.numberOfTrailingZeros(mascara);
+    }
+}
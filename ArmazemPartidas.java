@@ -0,0 +1,546 @@
+package projeto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Armazém durável das partidas terminadas: um log binário só de acréscimo, dividido em
+ * segmentos, mais um índice de posições que permite buscar qualquer partida em O(1).
+ * As gravações são acumuladas em buffers e descarregadas em lote pelo NIO (quando um buffer
+ * enche, ou em {@link #descarregar()} e {@link #close()}). O segmento é sempre forçado para o
+ * disco antes do índice, então o índice nunca aponta para um registro que não foi gravado;
+ * ao reabrir, o que sobrou depois da última partida indexada (uma gravação interrompida) é descartado.
+ *
+ * Arquivos no diretório: indice.idx e segmento-000000.dat, segmento-000001.dat, ...
+ * Cada arquivo começa com 8 bytes (a assinatura e a versão). Cada entrada do índice é um long
+ * com o número do segmento nos 24 bits altos e a posição do registro nos 40 bits baixos.
+ * Cada registro é: tamanho (int), instante (long, ms desde 1970), resultado (byte), nível da
+ * máquina (byte), largura - 1, altura - 1 e alinhamento - 1 (shorts sem sinal), quantidade de
+ * jogadas (int), os dois símbolos (1 byte de tamanho + UTF-8), as jogadas no formato do
+ * {@link RegistroJogadas} (um long ou 1-2 bytes por jogada) e o CRC32 do registro (int).
+ * Uma partida 3x3 com símbolos de um caractere ocupa 40 bytes no segmento e 8 no índice.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class ArmazemPartidas implements Closeable {
+
+    // --- ATRIBUTOS --- //
+    // Diretório padrão do armazém; pode ser trocado com -Djogodavelha.partidas=...
+    static final String DIRETORIO_PADRAO = "partidas";
+    private static final int ASSINATURA_SEGMENTO = 0x4A445650; // "JDVP"
+    private static final int ASSINATURA_INDICE = 0x4A445649;   // "JDVI"
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 8;
+    // Bytes fixos de um registro, sem os símbolos e as jogadas (tamanho, campos e CRC).
+    private static final int TAMANHO_FIXO = 4 + 8 + 1 + 1 + 6 + 4 + 2 + 4;
+    private static final long TAMANHO_SEGMENTO_PADRAO = 64L << 20; // 64 MiB.
+    private static final long MAXIMO_POSICAO = (1L << 40) - 1;
+    private static final int BUFFER_SEGMENTO = 64 << 10;
+    private static final int BUFFER_INDICE = 8 << 10;
+
+    private final Path diretorio;
+    private final long tamanhoSegmento;
+    private final FileChannel indice;
+    // Segmento em que as partidas novas são gravadas, e o tamanho que ele terá após o próximo descarregamento.
+    private FileChannel segmentoAtual;
+    private int numeroSegmentoAtual;
+    private long fimSegmentoAtual;
+    // Gravações acumuladas, ainda não descarregadas.
+    private final ByteBuffer pendentesSegmento = ByteBuffer.allocateDirect(BUFFER_SEGMENTO).order(ByteOrder.BIG_ENDIAN);
+    private final ByteBuffer pendentesIndice = ByteBuffer.allocateDirect(BUFFER_INDICE).order(ByteOrder.BIG_ENDIAN);
+    // Partidas já gravadas no disco e total de partidas (gravadas + pendentes).
+    private long descarregadas;
+    private long quantidade;
+    // Canais de leitura dos segmentos antigos, abertos sob demanda.
+    private final Map<Integer, FileChannel> leitores = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Uma partida lida do armazém.
+     */
+    static final class PartidaGravada {
+        private final long id;
+        private final long instante;
+        private final int resultado;
+        private final int nivelMaquina;
+        private final int largura, altura, alinhamento;
+        private final String[] simbolos;
+        private final RegistroJogadas jogadas;
+
+        PartidaGravada(long id, long instante, int resultado, int nivelMaquina, int largura, int altura,
+                       int alinhamento, String[] simbolos, RegistroJogadas jogadas) {
+            this.id = id;
+            this.instante = instante;
+            this.resultado = resultado;
+            this.nivelMaquina = nivelMaquina;
+            this.largura = largura;
+            this.altura = altura;
+            this.alinhamento = alinhamento;
+            this.simbolos = simbolos;
+            this.jogadas = jogadas;
+        }
+
+        long getId() { return id; }
+        long getInstante() { return instante; }
+        int getResultado() { return resultado; }
+        int getNivelMaquina() { return nivelMaquina; }
+        int getLargura() { return largura; }
+        int getAltura() { return altura; }
+        int getAlinhamento() { return alinhamento; }
+        String getSimbolo(int numeroJogador) { return simbolos[numeroJogador - 1]; }
+        RegistroJogadas getJogadas() { return jogadas; }
+
+        /**
+         * Refaz a partida até um lance, num jogo novo.
+         * @param lances Quantas jogadas refazer (0 até o total de jogadas).
+         * @return O jogo na posição após os lances pedidos.
+         */
+        JogoDaVelha reproduzir(int lances) {
+            JogoDaVelha jogo = nivelMaquina == 0
+                    ? new JogoDaVelha(simbolos[0], simbolos[1], largura, altura, alinhamento)
+                    : new JogoDaVelha(simbolos[0], nivelMaquina, largura, altura, alinhamento);
+            RegistroJogadas ate = jogadas.ate(lances);
+            for (int lance = 0; lance < ate.tamanho(); lance++) {
+                jogo.jogaJogador(ate.jogador(lance), ate.posicao(lance));
+            }
+            return jogo;
+        }
+    }
+
+    /**
+     * Abre (ou cria) o armazém no diretório indicado, com segmentos de 64 MiB.
+     * @param diretorio Diretório dos arquivos do armazém.
+     * @throws IOException Se não for possível abrir ou recuperar os arquivos.
+     */
+    ArmazemPartidas(Path diretorio) throws IOException {
+        this(diretorio, TAMANHO_SEGMENTO_PADRAO);
+    }
+
+    /**
+     * Abre (ou cria) o armazém no diretório indicado.
+     * @param diretorio Diretório dos arquivos do armazém.
+     * @param tamanhoSegmento Tamanho a partir do qual um novo segmento é iniciado, em bytes.
+     * @throws IOException Se não for possível abrir ou recuperar os arquivos.
+     */
+    ArmazemPartidas(Path diretorio, long tamanhoSegmento) throws IOException {
+        if (tamanhoSegmento <= TAMANHO_CABECALHO || tamanhoSegmento > MAXIMO_POSICAO) {
+            throw new IllegalArgumentException("Tamanho de segmento inválido: " + tamanhoSegmento + ".");
+        }
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        Files.createDirectories(diretorio);
+        this.indice = abrirComCabecalho(diretorio.resolve("indice.idx"), ASSINATURA_INDICE);
+        try {
+            recuperar();
+        } catch (IOException | RuntimeException e) {
+            fecharCanais();
+            throw e;
+        }
+    }
+
+    // --- MÉTODOS PÚBLICOS --- //
+
+    /**
+     * Acrescenta uma partida terminada ao armazém.
+     * @param jogo O jogo terminado.
+     * @return O número da partida no armazém (0 é a primeira).
+     * @throws IOException Se um descarregamento necessário falhar.
+     */
+    synchronized long acrescentar(JogoDaVelha jogo) throws IOException {
+        if (!jogo.terminou()) {
+            throw new IllegalArgumentException("Só partidas terminadas podem ser guardadas.");
+        }
+        return acrescentar(System.currentTimeMillis(), jogo.getResultado(), jogo.getNivelMaquina(),
+                jogo.getLargura(), jogo.getAltura(), jogo.getAlinhamento(),
+                jogo.getSimbolo(1), jogo.getSimbolo(2), jogo.getRegistro());
+    }
+
+    /**
+     * Acrescenta uma partida a partir dos seus dados.
+     * @return O número da partida no armazém (0 é a primeira).
+     * @throws IOException Se um descarregamento necessário falhar.
+     */
+    synchronized long acrescentar(long instante, int resultado, int nivelMaquina, int largura, int altura,
+                                  int alinhamento, String simbolo1, String simbolo2,
+                                  RegistroJogadas jogadas) throws IOException {
+        garantirAberto();
+        byte[] bytes1 = codificar(simbolo1);
+        byte[] bytes2 = codificar(simbolo2);
+        int bytesPorJogada = RegistroJogadas.bytesPorJogada(largura * altura);
+        int bytesJogadas = bytesPorJogada == 0 ? 8 : jogadas.tamanho() * bytesPorJogada;
+        int tamanho = TAMANHO_FIXO + bytes1.length + bytes2.length + bytesJogadas;
+
+        // Começa outro segmento quando este não comporta o registro (um segmento nunca fica vazio).
+        if (fimSegmentoAtual > TAMANHO_CABECALHO && fimSegmentoAtual + tamanho > tamanhoSegmento) {
+            descarregar();
+            abrirSegmentoParaEscrita(numeroSegmentoAtual + 1);
+        }
+        if (pendentesSegmento.remaining() < tamanho || !pendentesIndice.hasRemaining()) {
+            descarregar();
+        }
+        ByteBuffer destino = tamanho <= pendentesSegmento.capacity()
+                ? pendentesSegmento
+                : ByteBuffer.allocate(tamanho).order(ByteOrder.BIG_ENDIAN); // Registro maior que o buffer.
+
+        int inicio = destino.position();
+        destino.putInt(tamanho - 8); // O tamanho não conta o próprio campo nem o CRC.
+        destino.putLong(instante);
+        destino.put((byte) resultado);
+        destino.put((byte) nivelMaquina);
+        destino.putShort((short) (largura - 1));
+        destino.putShort((short) (altura - 1));
+        destino.putShort((short) (alinhamento - 1));
+        destino.putInt(jogadas.tamanho());
+        destino.put((byte) bytes1.length).put(bytes1);
+        destino.put((byte) bytes2.length).put(bytes2);
+        if (bytesPorJogada == 0) {
+            destino.putLong(jogadas.getCompacto());
+        } else {
+            for (int lance = 0; lance < jogadas.tamanho(); lance++) {
+                int posicao = jogadas.posicao(lance);
+                if (bytesPorJogada == 2) destino.put((byte) (posicao >>> 8));
+                destino.put((byte) posicao);
+            }
+        }
+        destino.putInt(calcularCrc(destino, inicio + 4, tamanho - 8));
+
+        pendentesIndice.putLong(((long) numeroSegmentoAtual << 40) | fimSegmentoAtual);
+        fimSegmentoAtual += tamanho;
+        quantidade++;
+        if (destino != pendentesSegmento) {
+            destino.flip();
+            escreverTudo(segmentoAtual, destino, fimSegmentoAtual - tamanho);
+            descarregar();
+        }
+        return quantidade - 1;
+    }
+
+    /**
+     * Lê uma partida pelo seu número, sem varrer os arquivos: uma leitura no índice e uma no segmento.
+     * @param id O número da partida (0 até getQuantidade() - 1).
+     * @return A partida gravada.
+     * @throws IOException Se a leitura falhar ou o registro estiver corrompido.
+     */
+    synchronized PartidaGravada ler(long id) throws IOException {
+        garantirAberto();
+        if (id < 0 || id >= quantidade) {
+            throw new IndexOutOfBoundsException("Partida " + id + " não existe (há " + quantidade + ").");
+        }
+        if (id >= descarregadas) {
+            descarregar();
+        }
+        ByteBuffer entrada = ByteBuffer.allocate(8);
+        lerTudo(indice, entrada, TAMANHO_CABECALHO + id * 8);
+        long localizacao = entrada.getLong(0);
+        int segmento = (int) (localizacao >>> 40);
+        long posicao = localizacao & MAXIMO_POSICAO;
+
+        FileChannel canal = canalDeLeitura(segmento);
+        ByteBuffer cabecalho = ByteBuffer.allocate(4);
+        lerTudo(canal, cabecalho, posicao);
+        int tamanho = cabecalho.getInt(0);
+        if (tamanho < TAMANHO_FIXO - 8 || posicao + 8 + tamanho > canal.size()) {
+            throw new IOException("Registro da partida " + id + " corrompido (tamanho " + tamanho + ").");
+        }
+        ByteBuffer registro = ByteBuffer.allocate(tamanho + 4).order(ByteOrder.BIG_ENDIAN);
+        lerTudo(canal, registro, posicao + 4);
+        if (calcularCrc(registro, 0, tamanho) != registro.getInt(tamanho)) {
+            throw new IOException("Registro da partida " + id + " corrompido (CRC não confere).");
+        }
+        return decodificar(id, registro);
+    }
+
+    /**
+     * Retorna quantas partidas o armazém contém, incluindo as que ainda não foram descarregadas.
+     */
+    synchronized long getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Grava no disco as partidas acumuladas: primeiro o segmento, depois o índice.
+     * @throws IOException Se a gravação falhar.
+     */
+    synchronized void descarregar() throws IOException {
+        garantirAberto();
+        if (pendentesIndice.position() == 0) {
+            return;
+        }
+        if (pendentesSegmento.position() > 0) {
+            pendentesSegmento.flip();
+            escreverTudo(segmentoAtual, pendentesSegmento, fimSegmentoAtual - pendentesSegmento.remaining());
+            pendentesSegmento.clear();
+        }
+        segmentoAtual.force(false);
+        pendentesIndice.flip();
+        escreverTudo(indice, pendentesIndice, TAMANHO_CABECALHO + descarregadas * 8);
+        pendentesIndice.clear();
+        indice.force(false);
+        descarregadas = quantidade;
+    }
+
+    /**
+     * Descarrega o que estiver pendente e fecha os arquivos.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!indice.isOpen()) {
+            return;
+        }
+        try {
+            descarregar();
+        } finally {
+            fecharCanais();
+        }
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    /**
+     * Lê o índice, descarta entradas incompletas ou que apontam para registros inválidos,
+     * corta o lixo no fim do último segmento e apaga segmentos posteriores a ele.
+     */
+    private void recuperar() throws IOException {
+        long entradas = (indice.size() - TAMANHO_CABECALHO) / 8;
+        int ultimoSegmento = 0;
+        long fim = TAMANHO_CABECALHO;
+        while (entradas > 0) {
+            ByteBuffer entrada = ByteBuffer.allocate(8);
+            lerTudo(indice, entrada, TAMANHO_CABECALHO + (entradas - 1) * 8);
+            long localizacao = entrada.getLong(0);
+            int segmento = (int) (localizacao >>> 40);
+            long posicao = localizacao & MAXIMO_POSICAO;
+            long fimRegistro = fimDoRegistroValido(segmento, posicao);
+            if (fimRegistro > 0) {
+                ultimoSegmento = segmento;
+                fim = fimRegistro;
+                break;
+            }
+            entradas--; // O índice aponta para um registro que não chegou ao disco.
+        }
+        indice.truncate(TAMANHO_CABECALHO + entradas * 8);
+        descarregadas = entradas;
+        quantidade = entradas;
+
+        // Segmentos depois do último usado são sobras de uma gravação interrompida.
+        for (int s = ultimoSegmento + 1; Files.exists(caminhoSegmento(s)); s++) {
+            Files.delete(caminhoSegmento(s));
+        }
+        abrirSegmentoParaEscrita(ultimoSegmento);
+        segmentoAtual.truncate(fim);
+        fimSegmentoAtual = fim;
+    }
+
+    /**
+     * Verifica o registro na posição indicada de um segmento.
+     * @return A posição logo após o registro, ou 0 se ele estiver incompleto ou corrompido.
+     */
+    private long fimDoRegistroValido(int segmento, long posicao) throws IOException {
+        Path caminho = caminhoSegmento(segmento);
+        if (!Files.exists(caminho)) {
+            return 0;
+        }
+        try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+            if (posicao < TAMANHO_CABECALHO || posicao + 4 > canal.size()) {
+                return 0;
+            }
+            ByteBuffer cabecalho = ByteBuffer.allocate(4);
+            lerTudo(canal, cabecalho, posicao);
+            int tamanho = cabecalho.getInt(0);
+            if (tamanho < TAMANHO_FIXO - 8 || posicao + 8 + tamanho > canal.size()) {
+                return 0;
+            }
+            ByteBuffer registro = ByteBuffer.allocate(tamanho + 4);
+            lerTudo(canal, registro, posicao + 4);
+            return calcularCrc(registro, 0, tamanho) == registro.getInt(tamanho) ? posicao + 8 + tamanho : 0;
+        }
+    }
+
+    private void abrirSegmentoParaEscrita(int numero) throws IOException {
+        if (numero >= 1 << 24) {
+            throw new IOException("O armazém atingiu o número máximo de segmentos.");
+        }
+        if (segmentoAtual != null) {
+            segmentoAtual.close();
+        }
+        FileChannel antigo = leitores.remove(numero);
+        if (antigo != null) {
+            antigo.close();
+        }
+        segmentoAtual = abrirComCabecalho(caminhoSegmento(numero), ASSINATURA_SEGMENTO);
+        numeroSegmentoAtual = numero;
+        fimSegmentoAtual = segmentoAtual.size();
+    }
+
+    /**
+     * Abre um arquivo para leitura e escrita, gravando o cabeçalho se ele for novo
+     * e validando-o se já existir.
+     */
+    private static FileChannel abrirComCabecalho(Path caminho, int assinatura) throws IOException {
+        FileChannel canal = FileChannel.open(caminho, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (canal.size() < TAMANHO_CABECALHO) {
+                ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+                cabecalho.putInt(assinatura).putInt(VERSAO).flip();
+                canal.truncate(0);
+                escreverTudo(canal, cabecalho, 0);
+            } else {
+                ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+                lerTudo(canal, cabecalho, 0);
+                if (cabecalho.getInt(0) != assinatura || cabecalho.getInt(4) != VERSAO) {
+                    throw new IOException("O arquivo " + caminho + " não é um arquivo do armazém de partidas.");
+                }
+            }
+            return canal;
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    private FileChannel canalDeLeitura(int segmento) throws IOException {
+        if (segmento == numeroSegmentoAtual) {
+            return segmentoAtual;
+        }
+        FileChannel canal = leitores.get(segmento);
+        if (canal == null) {
+            canal = FileChannel.open(caminhoSegmento(segmento), StandardOpenOption.READ);
+            leitores.put(segmento, canal);
+        }
+        return canal;
+    }
+
+    private Path caminhoSegmento(int numero) {
+        return diretorio.resolve(String.format("segmento-%06d.dat", numero));
+    }
+
+    private PartidaGravada decodificar(long id, ByteBuffer registro) {
+        registro.position(0);
+        long instante = registro.getLong();
+        int resultado = registro.get();
+        int nivelMaquina = registro.get();
+        int largura = (registro.getShort() & 0xFFFF) + 1;
+        int altura = (registro.getShort() & 0xFFFF) + 1;
+        int alinhamento = (registro.getShort() & 0xFFFF) + 1;
+        int jogadas = registro.getInt();
+        String[] simbolos = {decodificar(registro), decodificar(registro)};
+        int bytesPorJogada = RegistroJogadas.bytesPorJogada(largura * altura);
+        RegistroJogadas registroJogadas;
+        if (bytesPorJogada == 0) {
+            registroJogadas = RegistroJogadas.deCompacto(registro.getLong(), jogadas);
+        } else {
+            byte[] bytes = new byte[jogadas * bytesPorJogada];
+            registro.get(bytes);
+            registroJogadas = RegistroJogadas.deBytes(bytes, bytesPorJogada, jogadas);
+        }
+        return new PartidaGravada(id, instante, resultado, nivelMaquina, largura, altura, alinhamento,
+                simbolos, registroJogadas);
+    }
+
+    private static String decodificar(ByteBuffer registro) {
+        byte[] bytes = new byte[registro.get() & 0xFF];
+        registro.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] codificar(String simbolo) {
+        byte[] bytes = simbolo.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("Símbolo longo demais para o armazém: " + simbolo);
+        }
+        return bytes;
+    }
+
+    private int calcularCrc(ByteBuffer buffer, int inicio, int tamanho) {
+        crc.reset();
+        crc.update(buffer.duplicate().position(inicio).limit(inicio + tamanho));
+        return (int) crc.getValue();
+    }
+
+    private static void escreverTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        while (buffer.hasRemaining()) {
+            posicao += canal.write(buffer, posicao);
+        }
+    }
+
+    private static void lerTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        while (buffer.hasRemaining()) {
+            int lidos = canal.read(buffer, posicao);
+            if (lidos < 0) {
+                throw new IOException("Fim de arquivo inesperado no armazém de partidas.");
+            }
+            posicao += lidos;
+        }
+    }
+
+    private void garantirAberto() {
+        if (!indice.isOpen()) {
+            throw new IllegalStateException("O armazém de partidas está fechado.");
+        }
+    }
+
+    private void fecharCanais() throws IOException {
+        try {
+            for (FileChannel canal : leitores.values()) {
+                canal.close();
+            }
+            leitores.clear();
+            if (segmentoAtual != null) {
+                segmentoAtual.close();
+            }
+        } finally {
+            indice.close();
+        }
+    }
+
+    // --- MEDIÇÃO --- //
+
+    /**
+     * Mede a vazão das gravações e a latência das leituras por número.
+     * Uso: java projeto.ArmazemPartidas [diretorio] [partidas]
+     */
+    public static void main(String[] args) throws IOException {
+        Path diretorio = Paths.get(args.length > 0 ? args[0] : DIRETORIO_PADRAO);
+        int partidas = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        SplittableRandom aleatorio = new SplittableRandom(42);
+
+        try (ArmazemPartidas armazem = new ArmazemPartidas(diretorio)) {
+            long antes = armazem.getQuantidade();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < partidas; i++) {
+                JogoDaVelha jogo = new JogoDaVelha("X", "O");
+                jogo.definirSemente(aleatorio.nextLong());
+                while (!jogo.terminou()) {
+                    jogo.jogaJogador(jogo.getJogadorAtual(), jogo.escolherJogada(1));
+                }
+                armazem.acrescentar(jogo);
+            }
+            armazem.descarregar();
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("%d partidas gravadas em %.2fs (%.0f partidas/s); o armazém tem %d partidas (antes: %d)%n",
+                    partidas, segundos, partidas / segundos, armazem.getQuantidade(), antes);
+
+            HistogramaLatencia latencias = new HistogramaLatencia();
+            for (int i = 0; i < 100_000; i++) {
+                long id = aleatorio.nextLong(armazem.getQuantidade());
+                long t = System.nanoTime();
+                armazem.ler(id);
+                latencias.registrar(System.nanoTime() - t);
+            }
+            System.out.println("Leitura por número: " + latencias.resumo());
+        }
+    }
+}
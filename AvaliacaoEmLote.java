@@ -0,0 +1,263 @@
+package projeto;
+
+import java.util.SplittableRandom;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Avaliação em lote de posições do 3x3 guardadas em arrays de primitivos, para análises sobre
+ * milhões de posições sem criar um {@link JogoDaVelha} (nem objeto nenhum) por posição.
+ * Cada posição é um int no mesmo formato das chaves de {@link Simetrias}: a máscara de quem joga
+ * nos 9 bits baixos e a do adversário nos 9 bits seguintes (daVez | oponente << 9).
+ *
+ * Como as posições cabem em 18 bits, as respostas são pré-calculadas para todas elas em tabelas
+ * de 2^18 bytes (256 KiB cada, montadas na primeira consulta), e cada laço é contado, sem chamadas
+ * e com uma única leitura de tabela por posição: cerca de meio nanossegundo por posição, contra
+ * uns 10 ns das contas de linhas feitas posição a posição e 20 ns da {@link TabelaPerfeita} (que
+ * canoniza a posição a cada consulta). Lotes grandes podem ainda ser divididos entre os núcleos.
+ *
+ * Uso (medição): java projeto.AvaliacaoEmLote [posicoes] [semente]
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class AvaliacaoEmLote {
+
+    // --- ATRIBUTOS --- //
+    // Resultado de uma posição impossível (casas com dois donos, número de jogadas incoerente
+    // ou linha do jogador que está na vez). Os demais seguem JogoDaVelha.getResultado():
+    // -1 em andamento, 0 empate, 1 ou 2 o vencedor.
+    static final byte INVALIDA = -2;
+    private static final int TABULEIRO_CHEIO = 0x1FF;
+    // Abaixo disso, dividir entre threads custa mais do que avaliar.
+    private static final int LIMIAR_PARALELO = 1 << 16;
+    private static final int TAMANHO_BLOCO = 1 << 14;
+    private static final int TOTAL_CHAVES = 1 << 18;
+
+    /**
+     * As tabelas, montadas de forma preguiçosa e segura entre threads (idioma do "holder"),
+     * cada uma só quando for usada pela primeira vez.
+     */
+    private static final class Resultados {
+        static final byte[] TABELA = montar(AvaliacaoEmLote::resultado);
+    }
+
+    private static final class Jogadas {
+        static final byte[] TABELA = montar(AvaliacaoEmLote::melhorJogada);
+    }
+
+    private static final class Valores {
+        static final byte[] TABELA = montar(AvaliacaoEmLote::valor);
+    }
+
+    private AvaliacaoEmLote() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    /**
+     * Mede a vazão das avaliações sobre posições aleatórias.
+     */
+    public static void main(String[] args) {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        long semente = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int[] posicoes = posicoesAleatorias(quantidade, semente);
+        byte[] resultados = new byte[quantidade];
+        byte[] jogadas = new byte[quantidade];
+        for (int rodada = 0; rodada < 5; rodada++) {
+            long inicio = System.nanoTime();
+            classificar(posicoes, resultados, false);
+            long sequencial = System.nanoTime() - inicio;
+            inicio = System.nanoTime();
+            classificar(posicoes, resultados, true);
+            long paralelo = System.nanoTime() - inicio;
+            inicio = System.nanoTime();
+            melhoresJogadas(posicoes, jogadas, true);
+            long melhores = System.nanoTime() - inicio;
+            System.out.printf("Rodada %d: classificar %.2f ns/posição (paralelo %.2f), melhor jogada %.2f ns/posição%n",
+                    rodada + 1, (double) sequencial / quantidade, (double) paralelo / quantidade, (double) melhores / quantidade);
+        }
+    }
+
+    // --- MÉTODOS --- //
+
+    /**
+     * Codifica a posição atual de uma partida 3x3 no formato do lote.
+     * @param jogo A partida (3x3 com 3 em linha).
+     * @return daVez | oponente << 9.
+     */
+    static int codificar(JogoDaVelha jogo) {
+        if (!JogoDaVelha.ehClassico(jogo.getLargura(), jogo.getAltura(), jogo.getAlinhamento())) {
+            throw new IllegalArgumentException("A avaliação em lote só trabalha com o tabuleiro 3x3.");
+        }
+        int jogador = jogo.getJogadorAtual();
+        return jogo.getMascara(jogador) | (jogo.getMascara(3 - jogador) << 9);
+    }
+
+    /**
+     * Classifica cada posição: -1 em andamento, 0 empate, 1 ou 2 o vencedor, ou {@link #INVALIDA}.
+     * @param posicoes As posições codificadas.
+     * @param resultados Recebe o resultado de cada posição (pelo menos posicoes.length).
+     * @param paralelo Se o lote pode ser dividido entre os núcleos (só vale a pena em lotes grandes).
+     */
+    static void classificar(int[] posicoes, byte[] resultados, boolean paralelo) {
+        validarDestino(posicoes, resultados);
+        if (paralelo && posicoes.length >= LIMIAR_PARALELO) {
+            emBlocos(posicoes.length, (inicio, fim) -> classificar(posicoes, resultados, inicio, fim));
+        } else {
+            classificar(posicoes, resultados, 0, posicoes.length);
+        }
+    }
+
+    /**
+     * Classifica as posições de um intervalo (ver {@link #classificar(int[], byte[], boolean)}).
+     */
+    static void classificar(int[] posicoes, byte[] resultados, int inicio, int fim) {
+        consultar(Resultados.TABELA, posicoes, resultados, inicio, fim);
+    }
+
+    /**
+     * Escolhe a jogada perfeita de cada posição em andamento.
+     * @param posicoes As posições codificadas.
+     * @param jogadas Recebe a posição (0-8) da jogada, ou -1 se a partida acabou ou a posição é inválida.
+     * @param paralelo Se o lote pode ser dividido entre os núcleos.
+     */
+    static void melhoresJogadas(int[] posicoes, byte[] jogadas, boolean paralelo) {
+        validarDestino(posicoes, jogadas);
+        if (paralelo && posicoes.length >= LIMIAR_PARALELO) {
+            emBlocos(posicoes.length, (inicio, fim) -> melhoresJogadas(posicoes, jogadas, inicio, fim));
+        } else {
+            melhoresJogadas(posicoes, jogadas, 0, posicoes.length);
+        }
+    }
+
+    private static void melhoresJogadas(int[] posicoes, byte[] jogadas, int inicio, int fim) {
+        consultar(Jogadas.TABELA, posicoes, jogadas, inicio, fim);
+    }
+
+    /**
+     * Calcula o valor teórico de cada posição (com jogo perfeito dos dois lados) para quem está na vez.
+     * @param posicoes As posições codificadas.
+     * @param valores Recebe 1 (quem joga vence), 0 (empate), -1 (perde) ou {@link #INVALIDA}.
+     * @param paralelo Se o lote pode ser dividido entre os núcleos.
+     */
+    static void valores(int[] posicoes, byte[] valores, boolean paralelo) {
+        validarDestino(posicoes, valores);
+        if (paralelo && posicoes.length >= LIMIAR_PARALELO) {
+            emBlocos(posicoes.length, (inicio, fim) -> valores(posicoes, valores, inicio, fim));
+        } else {
+            valores(posicoes, valores, 0, posicoes.length);
+        }
+    }
+
+    private static void valores(int[] posicoes, byte[] valores, int inicio, int fim) {
+        consultar(Valores.TABELA, posicoes, valores, inicio, fim);
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    /**
+     * Um trecho [inicio, fim) do lote.
+     */
+    @FunctionalInterface
+    private interface Trecho {
+        void avaliar(int inicio, int fim);
+    }
+
+    /**
+     * Divide o lote em blocos e avalia os blocos em paralelo (no pool comum do ForkJoin).
+     */
+    private static void emBlocos(int total, Trecho trecho) {
+        int blocos = (total + TAMANHO_BLOCO - 1) / TAMANHO_BLOCO;
+        IntStream.range(0, blocos).parallel()
+                 .forEach(b -> trecho.avaliar(b * TAMANHO_BLOCO, Math.min(total, (b + 1) * TAMANHO_BLOCO)));
+    }
+
+    /**
+     * O laço de todas as avaliações: uma leitura de tabela por posição. Chaves com bits acima
+     * dos 18 usados são inválidas.
+     */
+    private static void consultar(byte[] tabela, int[] posicoes, byte[] destino, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            int p = posicoes[i];
+            destino[i] = (p >>> 18) == 0 ? tabela[p] : INVALIDA;
+        }
+    }
+
+    /**
+     * Calcula a resposta de cada uma das 2^18 chaves.
+     */
+    private static byte[] montar(IntUnaryOperator avaliacao) {
+        byte[] tabela = new byte[TOTAL_CHAVES];
+        for (int chave = 0; chave < TOTAL_CHAVES; chave++) {
+            tabela[chave] = (byte) avaliacao.applyAsInt(chave);
+        }
+        return tabela;
+    }
+
+    /**
+     * O resultado de uma posição: -1 em andamento, 0 empate, 1 ou 2 o vencedor, ou {@link #INVALIDA}.
+     */
+    private static int resultado(int chave) {
+        int daVez = chave & TABULEIRO_CHEIO;
+        int oponente = chave >>> 9;
+        // Quem acabou de jogar tem uma jogada a mais que quem está na vez (se era o jogador 1) ou o mesmo número (o 2).
+        int diferenca = Integer.bitCount(oponente) - Integer.bitCount(daVez);
+        if ((daVez & oponente) != 0 || (diferenca != 0 && diferenca != 1) || JogoDaVelha.verificaVencedor(daVez)) {
+            return INVALIDA;
+        }
+        if (JogoDaVelha.verificaVencedor(oponente)) {
+            return 2 - diferenca;
+        }
+        return (daVez | oponente) == TABULEIRO_CHEIO ? 0 : -1;
+    }
+
+    /**
+     * A jogada perfeita de uma posição em andamento, ou -1.
+     */
+    private static int melhorJogada(int chave) {
+        return resultado(chave) == -1 ? TabelaPerfeita.melhorJogada(chave & TABULEIRO_CHEIO, chave >>> 9) : -1;
+    }
+
+    /**
+     * O valor teórico para quem está na vez: 1, 0, -1, ou {@link #INVALIDA}.
+     */
+    private static int valor(int chave) {
+        int resultado = resultado(chave);
+        if (resultado == -1) {
+            return TabelaPerfeita.resultado(chave & TABULEIRO_CHEIO, chave >>> 9);
+        }
+        if (resultado == INVALIDA) {
+            return INVALIDA;
+        }
+        return resultado == 0 ? 0 : -1; // Encerrada: quem está na vez empatou ou perdeu.
+    }
+
+    private static void validarDestino(int[] posicoes, byte[] destino) {
+        if (destino.length < posicoes.length) {
+            throw new IllegalArgumentException("O array de resultados precisa de pelo menos " + posicoes.length + " posições.");
+        }
+    }
+
+    /**
+     * Gera posições alcançáveis aleatórias (algumas encerradas), para a medição.
+     */
+    static int[] posicoesAleatorias(int quantidade, long semente) {
+        SplittableRandom aleatorio = new SplittableRandom(semente);
+        int[] posicoes = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            int daVez = 0, oponente = 0;
+            int jogadas = aleatorio.nextInt(10);
+            for (int j = 0; j < jogadas && !JogoDaVelha.verificaVencedor(oponente); j++) {
+                int livres = ~(daVez | oponente) & TABULEIRO_CHEIO;
+                int casa = livres;
+                for (int pular = aleatorio.nextInt(Integer.bitCount(livres)); pular > 0; pular--) {
+                    casa &= casa - 1;
+                }
+                int novo = daVez | Integer.lowestOneBit(casa);
+                daVez = oponente;
+                oponente = novo;
+            }
+            posicoes[i] = daVez | (oponente << 9);
+        }
+        return posicoes;
+    }
+}
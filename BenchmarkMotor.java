@@ -0,0 +1,179 @@
+package projeto;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Micro-benchmarks dos caminhos quentes de {@link JogoDaVelha}, sem dependências externas.
+ * Segue o modelo do JMH: aquecimento, várias iterações de medição por tempo, um "sumidouro"
+ * para o JIT não descartar os resultados e, como o {@code -prof gc}, os bytes alocados por
+ * operação (medidos pelo ThreadMXBean da JVM). Os estados do tabuleiro são parametrizados:
+ * vazio, meio de jogo e terminal.
+ *
+ * Uso: java projeto.BenchmarkMotor [filtro] [iteracoes] [msPorIteracao]
+ * O filtro seleciona os casos cujo nome contém o texto informado (ex.: "getFoto").
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public class BenchmarkMotor {
+
+    // --- ATRIBUTOS --- //
+    // Jogadas que levam a cada estado parametrizado (o jogador 1 começa).
+    private static final int[] VAZIO = {};
+    private static final int[] MEIO = {4, 0, 8};               // Vez do jogador 2, sem vencedor.
+    private static final int[] TERMINAL = {0, 3, 1, 4, 2};     // Jogador 1 venceu na linha de cima.
+    private static final String[] NOMES_ESTADOS = {"vazio", "meio", "terminal"};
+    private static final int[][] ESTADOS = {VAZIO, MEIO, TERMINAL};
+    // Quantos jogos novos são preparados (fora da medição) para os casos que modificam o jogo.
+    private static final int TAMANHO_LOTE = 4096;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // "Sumidouro": acumula os resultados para que o JIT não elimine o código medido.
+    private static long sumidouro;
+
+    /**
+     * Um caso de benchmark: uma operação sobre um jogo num estado conhecido.
+     */
+    private static final class Caso {
+        final String nome;
+        final String estado;
+        final Supplier<JogoDaVelha> fabrica;
+        final ToLongFunction<JogoDaVelha> operacao;
+        final boolean modificaJogo; // Se true, cada operação recebe um jogo novo.
+
+        Caso(String nome, String estado, Supplier<JogoDaVelha> fabrica,
+             ToLongFunction<JogoDaVelha> operacao, boolean modificaJogo) {
+            this.nome = nome;
+            this.estado = estado;
+            this.fabrica = fabrica;
+            this.operacao = operacao;
+            this.modificaJogo = modificaJogo;
+        }
+    }
+
+    /**
+     * Executa os benchmarks e imprime uma tabela com ns/op e bytes/op.
+     */
+    public static void main(String[] args) {
+        String filtro = args.length > 0 ? args[0] : "";
+        int iteracoes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long msPorIteracao = args.length > 2 ? Long.parseLong(args[2]) : 500;
+
+        System.out.printf("%-28s %-9s %12s %12s%n", "Benchmark", "Estado", "ns/op", "B/op");
+        for (Caso caso : montarCasos()) {
+            if (!caso.nome.contains(filtro)) continue;
+            medir(caso, iteracoes, msPorIteracao); // Aquecimento, descartado.
+            double[] resultado = medir(caso, iteracoes, msPorIteracao);
+            System.out.printf("%-28s %-9s %12.1f %12.1f%n", caso.nome, caso.estado, resultado[0], resultado[1]);
+        }
+        if (sumidouro == 42) System.out.println(); // Só para o sumidouro ser "usado".
+    }
+
+    // --- CASOS --- //
+
+    private static List<Caso> montarCasos() {
+        List<Caso> casos = new ArrayList<>();
+        for (int e = 0; e < ESTADOS.length; e++) {
+            final int[] jogadas = ESTADOS[e];
+            String estado = NOMES_ESTADOS[e];
+            boolean terminal = jogadas == TERMINAL;
+            Supplier<JogoDaVelha> jogadores = () -> preparar(new JogoDaVelha("X", "O"), jogadas);
+
+            // Consultas: não modificam o jogo, então um único jogo serve para todas as operações.
+            casos.add(new Caso("terminou", estado, jogadores, j -> j.terminou() ? 1 : 0, false));
+            casos.add(new Caso("getResultado", estado, jogadores, JogoDaVelha::getResultado, false));
+            casos.add(new Caso("getPosicoesDisponiveis", estado, jogadores, j -> j.getPosicoesDisponiveis().size(), false));
+            casos.add(new Caso("getFoto", estado, jogadores, j -> j.getFoto().length(), false));
+            casos.add(new Caso("getHistorico", estado, jogadores, j -> j.getHistorico().size(), false));
+            casos.add(new Caso("getRegistro", estado, jogadores, j -> j.getRegistro().tamanho(), false));
+            final byte[] tabuleiro = new byte[9];
+            casos.add(new Caso("copiarTabuleiro", estado, jogadores, j -> j.copiarTabuleiro(tabuleiro), false));
+
+            if (!terminal) {
+                // Jogadas: cada operação recebe um jogo novo, preparado fora da medição.
+                casos.add(new Caso("jogaJogador", estado, jogadores, j -> {
+                    int jogador = j.getJogadorAtual();
+                    int posicao = primeiraLivre(j);
+                    j.jogaJogador(jogador, posicao);
+                    return posicao;
+                }, true));
+                // Faz/desfaz: o par que as buscas usam para explorar um único jogo, sem cópias.
+                casos.add(new Caso("jogaJogador+desfazer", estado, jogadores, j -> {
+                    int posicao = primeiraLivre(j);
+                    j.jogaJogador(j.getJogadorAtual(), posicao);
+                    return j.desfazer();
+                }, false));
+                if (jogadas.length % 2 == 1) { // jogaMaquina só vale quando é a vez do jogador 2.
+                    for (int nivel = 1; nivel <= 2; nivel++) {
+                        final int n = nivel;
+                        casos.add(new Caso("jogaMaquina(nivel " + n + ")", estado,
+                                () -> preparar(new JogoDaVelha("X", n), jogadas), j -> {
+                                    j.jogaMaquina();
+                                    return j.getResultado();
+                                }, true));
+                    }
+                }
+            }
+        }
+        // Partida completa: da construção ao fim, jogador 1 na primeira casa livre contra o nível 2.
+        casos.add(new Caso("partidaCompleta(nivel 2)", "vazio", () -> null, j -> {
+            JogoDaVelha jogo = new JogoDaVelha("X", 2);
+            while (!jogo.terminou()) {
+                jogo.jogaJogador(1, primeiraLivre(jogo));
+                if (!jogo.terminou()) jogo.jogaMaquina();
+            }
+            return jogo.getResultado();
+        }, false));
+        return casos;
+    }
+
+    private static JogoDaVelha preparar(JogoDaVelha jogo, int[] jogadas) {
+        jogo.definirSemente(1);
+        for (int posicao : jogadas) {
+            jogo.jogaJogador(jogo.getJogadorAtual(), posicao);
+        }
+        return jogo;
+    }
+
+    private static int primeiraLivre(JogoDaVelha jogo) {
+        for (int posicao = 0; posicao < jogo.getTotalCelulas(); posicao++) {
+            if (jogo.getDonoCelula(posicao) == 0) return posicao;
+        }
+        throw new IllegalStateException("Tabuleiro cheio.");
+    }
+
+    // --- MEDIÇÃO --- //
+
+    /**
+     * Roda as iterações do caso e devolve a média de ns/op e de bytes/op.
+     */
+    private static double[] medir(Caso caso, int iteracoes, long msPorIteracao) {
+        long operacoes = 0, nanos = 0, bytes = 0;
+        JogoDaVelha unico = caso.modificaJogo ? null : caso.fabrica.get();
+        JogoDaVelha[] lote = new JogoDaVelha[TAMANHO_LOTE];
+        long idThread = Thread.currentThread().getId();
+        for (int it = 0; it < iteracoes; it++) {
+            long fimIteracao = System.nanoTime() + msPorIteracao * 1_000_000L;
+            while (System.nanoTime() < fimIteracao) {
+                if (caso.modificaJogo) {
+                    for (int i = 0; i < TAMANHO_LOTE; i++) lote[i] = caso.fabrica.get();
+                }
+                long bytesAntes = THREADS.getThreadAllocatedBytes(idThread);
+                long antes = System.nanoTime();
+                long acumulado = 0;
+                for (int i = 0; i < TAMANHO_LOTE; i++) {
+                    acumulado += caso.operacao.applyAsLong(caso.modificaJogo ? lote[i] : unico);
+                }
+                nanos += System.nanoTime() - antes;
+                bytes += THREADS.getThreadAllocatedBytes(idThread) - bytesAntes;
+                operacoes += TAMANHO_LOTE;
+                sumidouro += acumulado;
+            }
+        }
+        return new double[]{(double) nanos / operacoes, (double) bytes / operacoes};
+    }
+}
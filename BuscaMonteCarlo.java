@@ -0,0 +1,296 @@
+package projeto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Busca em árvore Monte Carlo (MCTS com UCT) para a máquina (nível 5).
+ * Usa paralelismo na raiz: cada thread monta a sua própria árvore a partir da posição atual,
+ * sem nada compartilhado, e no fim as visitas dos filhos da raiz são somadas; a jogada mais
+ * visitada vence. Cada thread tem o seu SplittableRandom (dividido de um gerador mestre),
+ * então a vazão cresce com o número de núcleos sem disputa por um Random compartilhado.
+ * As simulações ("playouts") reaproveitam um tabuleiro e um vetor de casas livres por thread,
+ * sem alocar nada por simulação.
+ * Com mais de 1 thread, o pool vem de {@link PoolsBusca} (compartilhado); com 1, a árvore é
+ * montada na thread de quem pede a jogada, sem disputar um pool com ninguém. A semente vem de quem pede a jogada, a cada
+ * busca: o motor não guarda estado de uma partida, e pode ser reaproveitado por várias, uma busca
+ * de cada vez.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class BuscaMonteCarlo {
+
+    // --- ATRIBUTOS --- //
+    // Constante de exploração do UCT (raiz de 2 é o valor teórico clássico).
+    private static final double EXPLORACAO = Math.sqrt(2);
+    // De quantas em quantas simulações cada thread confere o relógio.
+    private static final int INTERVALO_RELOGIO = 64;
+
+    private volatile int threads;
+    private volatile int simulacoes;
+    private volatile long orcamentoMs;
+    private volatile ForkJoinPool pool; // null com 1 thread: a busca roda na thread de quem pede.
+    // Estatísticas da última busca, para ajuste fino.
+    private volatile long ultimasSimulacoes;
+    private volatile double ultimasSimulacoesPorSegundo;
+
+    /**
+     * Cria a busca. Pelo menos um dos dois limites (simulações ou tempo) deve ser positivo;
+     * a busca para no primeiro que for atingido.
+     * @param threads Quantas árvores independentes são montadas em paralelo.
+     * @param simulacoes Total de simulações por jogada, somando as threads (0 = sem limite).
+     * @param orcamentoMs Tempo máximo por jogada, em milissegundos (0 = sem limite).
+     */
+    BuscaMonteCarlo(int threads, int simulacoes, long orcamentoMs) {
+        configurar(threads, simulacoes, orcamentoMs);
+    }
+
+    /**
+     * Troca as opções da busca (vale para a próxima jogada).
+     * @param threads Quantas árvores independentes são montadas em paralelo.
+     * @param simulacoes Total de simulações por jogada, somando as threads (0 = sem limite).
+     * @param orcamentoMs Tempo máximo por jogada, em milissegundos (0 = sem limite).
+     */
+    void configurar(int threads, int simulacoes, long orcamentoMs) {
+        if (simulacoes < 0 || orcamentoMs < 0 || (simulacoes == 0 && orcamentoMs == 0)) {
+            throw new IllegalArgumentException("Informe um limite de simulações ou de tempo positivo.");
+        }
+        this.pool = threads == 1 ? null : PoolsBusca.comThreads(threads);
+        this.threads = threads;
+        this.simulacoes = simulacoes;
+        this.orcamentoMs = orcamentoMs;
+    }
+
+    /**
+     * Nó da árvore: a jogada que levou até ele, quem a fez e as estatísticas das simulações.
+     */
+    private static final class No {
+        final No pai;
+        final int jogada;
+        final int jogador;      // Quem fez a jogada que levou a este nó.
+        final int vencedor;     // -1 se o nó não é terminal; 0 empate; 1 ou 2 vitória.
+        final int[] naoTentadas;
+        int quantidadeNaoTentadas;
+        final List<No> filhos = new ArrayList<>();
+        int visitas;
+        double vitorias;        // Do ponto de vista de 'jogador'.
+
+        No(No pai, int jogada, int jogador, int vencedor, PosicaoBusca posicao) {
+            this.pai = pai;
+            this.jogada = jogada;
+            this.jogador = jogador;
+            this.vencedor = vencedor;
+            if (vencedor == -1) {
+                this.naoTentadas = new int[posicao.total - posicao.jogadas];
+                for (int pos = 0; pos < posicao.total; pos++) {
+                    if (posicao.celulas[pos] == 0) naoTentadas[quantidadeNaoTentadas++] = pos;
+                }
+            } else {
+                this.naoTentadas = new int[0];
+            }
+        }
+
+        /**
+         * Escolhe o filho com maior UCB1.
+         */
+        No selecionar() {
+            double logVisitas = Math.log(visitas);
+            No melhor = null;
+            double melhorValor = Double.NEGATIVE_INFINITY;
+            for (No filho : filhos) {
+                double valor = filho.vitorias / filho.visitas + EXPLORACAO * Math.sqrt(logVisitas / filho.visitas);
+                if (valor > melhorValor) {
+                    melhorValor = valor;
+                    melhor = filho;
+                }
+            }
+            return melhor;
+        }
+    }
+
+    // --- MÉTODOS PÚBLICOS --- //
+
+    /**
+     * Escolhe a jogada de quem está na vez.
+     * @param jogo O jogo em andamento (não é modificado).
+     * @param jogador O jogador que vai jogar (1 ou 2).
+     * @param semente Semente desta busca (cada thread recebe um gerador dividido dela), para
+     *                resultados reproduzíveis.
+     * @return A posição mais visitada, somando as árvores de todas as threads.
+     */
+    int melhorJogada(JogoDaVelha jogo, int jogador, long semente) {
+        PosicaoBusca raiz = new PosicaoBusca(jogo);
+        long inicio = System.nanoTime();
+        long prazo = orcamentoMs > 0 ? inicio + orcamentoMs * 1_000_000L : Long.MAX_VALUE;
+        ForkJoinPool pool = this.pool;
+        int arvores = pool == null ? 1 : threads;
+        int simulacoesPorThread = simulacoes > 0 ? Math.max(1, simulacoes / arvores) : Integer.MAX_VALUE;
+        SplittableRandom mestre = new SplittableRandom(semente);
+
+        // Cada thread devolve as visitas por posição da raiz, com o total de simulações no último índice.
+        long[] visitas;
+        if (pool == null) {
+            visitas = buscarArvore(raiz.copiar(), jogador, simulacoesPorThread, prazo, jogo, mestre.split());
+        } else {
+            List<Callable<long[]>> tarefas = new ArrayList<>();
+            for (int t = 0; t < arvores; t++) {
+                SplittableRandom aleatorio = mestre.split();
+                tarefas.add(() -> buscarArvore(raiz.copiar(), jogador, simulacoesPorThread, prazo, jogo, aleatorio));
+            }
+            visitas = new long[raiz.total + 1];
+            try {
+                for (Future<long[]> resultado : pool.invokeAll(tarefas)) {
+                    long[] parcial = resultado.get();
+                    for (int i = 0; i < visitas.length; i++) visitas[i] += parcial[i];
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("A busca da máquina foi interrompida.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falha na busca Monte Carlo.", e.getCause());
+            }
+        }
+
+        int melhor = -1;
+        for (int pos = 0; pos < raiz.total; pos++) {
+            if (raiz.celulas[pos] == 0 && (melhor == -1 || visitas[pos] > visitas[melhor])) {
+                melhor = pos;
+            }
+        }
+        double segundos = Math.max(1e-9, (System.nanoTime() - inicio) / 1e9);
+        ultimasSimulacoes = visitas[raiz.total];
+        ultimasSimulacoesPorSegundo = ultimasSimulacoes / segundos;
+        return melhor;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    int getSimulacoes() {
+        return simulacoes;
+    }
+
+    long getOrcamentoMs() {
+        return orcamentoMs;
+    }
+
+    /**
+     * Retorna quantas simulações a busca mais recente fez, somando as threads.
+     */
+    long getUltimasSimulacoes() {
+        return ultimasSimulacoes;
+    }
+
+    /**
+     * Retorna a vazão da busca mais recente, em simulações por segundo.
+     */
+    double getUltimasSimulacoesPorSegundo() {
+        return ultimasSimulacoesPorSegundo;
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    /**
+     * Monta uma árvore UCT (seleção, expansão, simulação, retropropagação) até o limite, o prazo ou
+     * a partida pedir a interrupção ({@link JogoDaVelha#interromperBusca()}).
+     * @return As visitas de cada jogada da raiz e, no último índice, o total de simulações.
+     */
+    private static long[] buscarArvore(PosicaoBusca raiz, int jogador, int limite, long prazo, JogoDaVelha jogo,
+                                       SplittableRandom aleatorio) {
+        No arvore = new No(null, -1, 3 - jogador, -1, raiz);
+        PosicaoBusca rascunho = raiz.copiar();
+        int[] livres = new int[raiz.total];
+        int feitas = 0;
+        while (feitas < limite && (feitas % INTERVALO_RELOGIO != 0 || (System.nanoTime() < prazo && !jogo.isBuscaInterrompida()))) {
+            rascunho.copiarDe(raiz);
+            No no = arvore;
+
+            // 1. Seleção: desce pelos nós já totalmente expandidos.
+            while (no.vencedor == -1 && no.quantidadeNaoTentadas == 0 && !no.filhos.isEmpty()) {
+                no = no.selecionar();
+                rascunho.jogar(no.jogada, no.jogador);
+            }
+
+            // 2. Expansão: tenta uma jogada nova, sorteada entre as que faltam.
+            if (no.vencedor == -1 && no.quantidadeNaoTentadas > 0) {
+                int indice = aleatorio.nextInt(no.quantidadeNaoTentadas);
+                int jogada = no.naoTentadas[indice];
+                no.naoTentadas[indice] = no.naoTentadas[--no.quantidadeNaoTentadas];
+                int quemJoga = 3 - no.jogador;
+                boolean venceu = rascunho.jogar(jogada, quemJoga);
+                int vencedor = venceu ? quemJoga : rascunho.jogadas == rascunho.total ? 0 : -1;
+                No filho = new No(no, jogada, quemJoga, vencedor, rascunho);
+                no.filhos.add(filho);
+                no = filho;
+            }
+
+            // 3. Simulação: jogadas aleatórias até o fim.
+            int vencedor = no.vencedor != -1 ? no.vencedor : simular(rascunho, 3 - no.jogador, livres, aleatorio);
+
+            // 4. Retropropagação.
+            for (No n = no; n != null; n = n.pai) {
+                n.visitas++;
+                if (vencedor == n.jogador) n.vitorias += 1;
+                else if (vencedor == 0) n.vitorias += 0.5;
+            }
+            feitas++;
+        }
+
+        long[] visitas = new long[raiz.total + 1];
+        for (No filho : arvore.filhos) {
+            visitas[filho.jogada] = filho.visitas;
+        }
+        visitas[raiz.total] = feitas;
+        return visitas;
+    }
+
+    /**
+     * Joga aleatoriamente a partir da posição até alguém vencer ou o tabuleiro encher.
+     * @param livres Vetor reaproveitado para as casas livres (evita alocação por simulação).
+     * @return O vencedor (1 ou 2) ou 0 em caso de empate.
+     */
+    private static int simular(PosicaoBusca posicao, int jogador, int[] livres, SplittableRandom aleatorio) {
+        int n = 0;
+        for (int pos = 0; pos < posicao.total; pos++) {
+            if (posicao.celulas[pos] == 0) livres[n++] = pos;
+        }
+        while (n > 0) {
+            int indice = aleatorio.nextInt(n);
+            int jogada = livres[indice];
+            livres[indice] = livres[--n];
+            if (posicao.jogar(jogada, jogador)) {
+                return jogador;
+            }
+            jogador = 3 - jogador;
+        }
+        return 0;
+    }
+
+    // --- MEDIÇÃO --- //
+
+    /**
+     * Mede a vazão das simulações para ajuste fino.
+     * Uso: java projeto.BuscaMonteCarlo [threads] [simulacoes] [largura] [altura] [alinhamento]
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int simulacoes = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int largura = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int altura = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int alinhamento = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+        BuscaMonteCarlo busca = new BuscaMonteCarlo(threads, simulacoes, 0);
+        JogoDaVelha jogo = new JogoDaVelha("X", "O", largura, altura, alinhamento);
+        for (int rodada = 0; rodada < 5; rodada++) { // As primeiras rodadas servem de aquecimento do JIT.
+            int jogada = busca.melhorJogada(jogo, 1, System.nanoTime());
+            System.out.printf("Rodada %d: jogada %d, %d simulações, %.0f simulações/s%n",
+                    rodada + 1, jogada, busca.getUltimasSimulacoes(), busca.getUltimasSimulacoesPorSegundo());
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package projeto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Busca alfa-beta paralela para tabuleiros grandes (nível 4 da máquina).
+ * Faz aprofundamento iterativo dentro de um orçamento de tempo em milissegundos e, em cada
+ * profundidade, divide as jogadas da raiz num ForkJoinPool no estilo "young brothers wait":
+ * a primeira jogada (a melhor da iteração anterior) é buscada sozinha para estabelecer o alfa,
+ * e só então as irmãs mais novas são buscadas em paralelo com essa janela.
+ * As threads compartilham uma tabela de transposição sem travas (entradas gravadas com o
+ * truque do XOR entre chave e dados, que descarta leituras "rasgadas" entre duas threads).
+ * Quando o prazo estoura (ou a partida pede a interrupção, {@link JogoDaVelha#interromperBusca()}),
+ * devolve a melhor jogada da última iteração completa.
+ * Com mais de 1 thread, o pool vem de {@link PoolsBusca} (compartilhado); com 1, a busca roda
+ * inteira na thread de quem pede a jogada, sem disputar um pool com ninguém. A tabela é guardada entre as jogadas e
+ * entre as partidas do mesmo tabuleiro: um motor pode ser reaproveitado por várias partidas,
+ * uma busca de cada vez.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class BuscaParalela {
+
+    // --- ATRIBUTOS --- //
+    // Valor de uma vitória; vitórias mais próximas da raiz valem um pouco mais.
+    private static final int VITORIA = 1_000_000;
+    private static final int INFINITO = VITORIA + 1;
+    // Tamanho da tabela de transposição (potência de 2) e tipos de entrada.
+    private static final int BITS_TABELA = 20;
+    private static final int EXATO = 0, LIMITE_INFERIOR = 1, LIMITE_SUPERIOR = 2;
+    // De quantos em quantos nós cada thread confere o relógio.
+    private static final int INTERVALO_RELOGIO = 1024;
+
+    private volatile int threads;
+    private volatile long orcamentoMs;
+    private volatile ForkJoinPool pool; // null com 1 thread: a busca roda na thread de quem pede.
+    // Tabuleiro (largura, altura, alinhamento) das entradas da tabela. As chaves de Zobrist só
+    // dependem das células, então outro tabuleiro com as mesmas células daria os mesmos hashes.
+    private int larguraTabela, alturaTabela, alinhamentoTabela;
+    // Tabela de transposição compartilhada: chave guardada = hash ^ dados. Alocada na primeira
+    // busca, então criar um motor que acaba não sendo usado não custa os 16 MiB.
+    private AtomicLongArray chavesTabela;
+    private AtomicLongArray dadosTabela;
+    private final LongAdder nos = new LongAdder();
+    // Estatísticas da última busca, para medir a escala com o número de threads.
+    private volatile int ultimaProfundidade;
+    private volatile long ultimosNos;
+
+    /**
+     * Sinaliza que o prazo da busca acabou; pré-alocada e sem pilha, pois só serve para desempilhar.
+     */
+    private static final class TempoEsgotado extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final TempoEsgotado INSTANCIA = new TempoEsgotado();
+
+        private TempoEsgotado() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Cria a busca com o número de threads e o orçamento de tempo por jogada.
+     * @param threads Quantas threads de trabalho a busca usa.
+     * @param orcamentoMs Tempo máximo, em milissegundos, para escolher cada jogada.
+     */
+    BuscaParalela(int threads, long orcamentoMs) {
+        configurar(threads, orcamentoMs);
+    }
+
+    /**
+     * Troca as opções da busca, mantendo a tabela de transposição (vale para a próxima jogada).
+     * @param threads Quantas threads de trabalho a busca usa.
+     * @param orcamentoMs Tempo máximo, em milissegundos, para escolher cada jogada.
+     */
+    void configurar(int threads, long orcamentoMs) {
+        if (orcamentoMs < 1) {
+            throw new IllegalArgumentException("O orçamento de tempo deve ser de pelo menos 1 ms.");
+        }
+        this.pool = threads == 1 ? null : PoolsBusca.comThreads(threads);
+        this.threads = threads;
+        this.orcamentoMs = orcamentoMs;
+    }
+
+    // --- MÉTODOS PÚBLICOS --- //
+
+    /**
+     * Escolhe a jogada de quem está na vez, aprofundando até o prazo acabar.
+     * @param jogo O jogo em andamento (não é modificado).
+     * @param jogador O jogador que vai jogar (1 ou 2).
+     * @return A melhor posição encontrada dentro do orçamento.
+     */
+    int melhorJogada(JogoDaVelha jogo, int jogador) {
+        long prazo = System.nanoTime() + orcamentoMs * 1_000_000L;
+        if (chavesTabela == null) {
+            chavesTabela = new AtomicLongArray(1 << BITS_TABELA);
+            dadosTabela = new AtomicLongArray(1 << BITS_TABELA);
+        } else if (jogo.getLargura() != larguraTabela || jogo.getAltura() != alturaTabela || jogo.getAlinhamento() != alinhamentoTabela) {
+            limparTabela();
+        }
+        larguraTabela = jogo.getLargura();
+        alturaTabela = jogo.getAltura();
+        alinhamentoTabela = jogo.getAlinhamento();
+        PosicaoBusca raiz = new PosicaoBusca(jogo);
+        int[] jogadas = raiz.gerarJogadas();
+        int melhor = jogadas[0];
+        int profundidadeCompleta = 0;
+        nos.reset();
+
+        int maximo = raiz.total - raiz.jogadas;
+        for (int profundidade = 1; profundidade <= maximo; profundidade++) {
+            ordenarPrimeiro(jogadas, melhor);
+            long resultado;
+            try {
+                resultado = buscarRaiz(raiz, jogadas, profundidade, jogador, prazo, jogo);
+            } catch (TempoEsgotado e) {
+                break; // Fica com a melhor jogada da última iteração completa.
+            }
+            melhor = (int) resultado;
+            profundidadeCompleta = profundidade;
+            if (Math.abs((int) (resultado >> 32)) >= VITORIA - maximo) {
+                break; // Vitória ou derrota forçada já encontrada; aprofundar não muda nada.
+            }
+            if (System.nanoTime() >= prazo || jogo.isBuscaInterrompida()) {
+                break;
+            }
+        }
+        ultimaProfundidade = profundidadeCompleta;
+        ultimosNos = nos.sum();
+        return melhor;
+    }
+
+    /**
+     * Retorna a profundidade da última iteração completa da busca mais recente.
+     */
+    int getUltimaProfundidade() {
+        return ultimaProfundidade;
+    }
+
+    /**
+     * Retorna quantos nós a busca mais recente visitou, somando todas as threads.
+     */
+    long getUltimosNos() {
+        return ultimosNos;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    long getOrcamentoMs() {
+        return orcamentoMs;
+    }
+
+    // --- BUSCA NA RAIZ --- //
+
+    /**
+     * Busca uma profundidade completa na raiz, com a divisão "young brothers wait".
+     * @return O valor (32 bits altos) e a jogada (32 bits baixos) da melhor jogada.
+     */
+    private long buscarRaiz(PosicaoBusca raiz, int[] jogadas, int profundidade, int jogador, long prazo, JogoDaVelha jogo) {
+        // O irmão mais velho é buscado sozinho, com janela completa.
+        int valorPrimeiro = avaliarJogadaRaiz(raiz.copiar(), jogadas[0], profundidade, jogador, -INFINITO, prazo, jogo);
+        AtomicLong melhor = new AtomicLong(empacotar(valorPrimeiro, jogadas[0]));
+        AtomicBoolean esgotou = new AtomicBoolean();
+
+        ForkJoinPool pool = this.pool;
+        if (pool == null) {
+            // Com 1 thread, os irmãos são buscados um depois do outro, na thread de quem pediu.
+            for (int i = 1; i < jogadas.length; i++) {
+                int valor = avaliarJogadaRaiz(raiz.copiar(), jogadas[i], profundidade, jogador, (int) (melhor.get() >> 32), prazo, jogo);
+                if (valor > (int) (melhor.get() >> 32)) {
+                    melhor.set(empacotar(valor, jogadas[i]));
+                }
+            }
+            return melhor.get();
+        }
+
+        // Os irmãos mais novos são buscados em paralelo, usando o alfa que já temos (e que vai subindo).
+        List<RecursiveAction> tarefas = new ArrayList<>();
+        for (int i = 1; i < jogadas.length; i++) {
+            final int jogada = jogadas[i];
+            tarefas.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    int alfa = (int) (melhor.get() >> 32);
+                    int valor;
+                    try {
+                        valor = avaliarJogadaRaiz(raiz.copiar(), jogada, profundidade, jogador, alfa, prazo, jogo);
+                    } catch (TempoEsgotado e) {
+                        esgotou.set(true);
+                        return;
+                    }
+                    long atual;
+                    while (valor > (int) ((atual = melhor.get()) >> 32)) {
+                        if (melhor.compareAndSet(atual, empacotar(valor, jogada))) break;
+                    }
+                }
+            });
+        }
+        if (!tarefas.isEmpty()) {
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tarefas);
+                }
+            });
+        }
+        if (esgotou.get()) {
+            throw TempoEsgotado.INSTANCIA; // Iteração incompleta: o resultado parcial não é confiável.
+        }
+        return melhor.get();
+    }
+
+    /**
+     * Joga uma jogada da raiz numa cópia da posição e devolve o valor dela para quem jogou.
+     */
+    private int avaliarJogadaRaiz(PosicaoBusca posicao, int jogada, int profundidade, int jogador, int alfa, long prazo,
+                                  JogoDaVelha jogo) {
+        if (posicao.jogar(jogada, jogador)) {
+            return VITORIA - 1;
+        }
+        if (posicao.jogadas == posicao.total) {
+            return 0;
+        }
+        int[] contador = new int[1];
+        try {
+            return -negamax(posicao, profundidade - 1, -INFINITO, -alfa, 1, 3 - jogador, prazo, jogo, contador);
+        } finally {
+            nos.add(contador[0]);
+        }
+    }
+
+    // --- NEGAMAX --- //
+
+    /**
+     * Negamax com poda alfa-beta e tabela de transposição compartilhada.
+     * @return O valor da posição para o jogador da vez.
+     */
+    private int negamax(PosicaoBusca p, int profundidade, int alfa, int beta, int distancia, int jogador,
+                        long prazo, JogoDaVelha jogo, int[] contador) {
+        if (++contador[0] >= INTERVALO_RELOGIO) {
+            nos.add(contador[0]);
+            contador[0] = 0;
+            if (System.nanoTime() >= prazo || jogo.isBuscaInterrompida()) throw TempoEsgotado.INSTANCIA;
+        }
+        if (profundidade == 0) {
+            return p.avaliar(jogador);
+        }
+
+        int indice = (int) (p.hash & ((1 << BITS_TABELA) - 1));
+        long dados = dadosTabela.get(indice);
+        int jogadaTabela = -1;
+        if ((chavesTabela.get(indice) ^ dados) == p.hash) {
+            int valorTabela = (int) dados;
+            int profundidadeTabela = (int) (dados >>> 32) & 0xFF;
+            int tipo = (int) (dados >>> 40) & 0x3;
+            jogadaTabela = (int) (dados >>> 42) & 0xFFFF;
+            if (profundidadeTabela >= profundidade) {
+                if (tipo == EXATO) return valorTabela;
+                if (tipo == LIMITE_INFERIOR && valorTabela >= beta) return valorTabela;
+                if (tipo == LIMITE_SUPERIOR && valorTabela <= alfa) return valorTabela;
+            }
+        }
+
+        int[] jogadas = p.gerarJogadas();
+        if (jogadaTabela >= 0) ordenarPrimeiro(jogadas, jogadaTabela);
+        int alfaOriginal = alfa;
+        int melhorValor = -INFINITO;
+        int melhorJogada = jogadas[0];
+        for (int jogada : jogadas) {
+            int valor;
+            if (p.jogar(jogada, jogador)) {
+                valor = VITORIA - distancia;
+            } else if (p.jogadas == p.total) {
+                valor = 0;
+            } else {
+                valor = -negamax(p, profundidade - 1, -beta, -alfa, distancia + 1, 3 - jogador, prazo, jogo, contador);
+            }
+            p.desfazer(jogada, jogador);
+            if (valor > melhorValor) {
+                melhorValor = valor;
+                melhorJogada = jogada;
+            }
+            if (valor > alfa) alfa = valor;
+            if (alfa >= beta) break;
+        }
+
+        int tipo = melhorValor <= alfaOriginal ? LIMITE_SUPERIOR : melhorValor >= beta ? LIMITE_INFERIOR : EXATO;
+        long novosDados = (melhorValor & 0xFFFFFFFFL) | ((long) Math.min(profundidade, 0xFF) << 32)
+                | ((long) tipo << 40) | ((long) melhorJogada << 42);
+        dadosTabela.set(indice, novosDados);
+        chavesTabela.set(indice, p.hash ^ novosDados);
+        return melhorValor;
+    }
+
+    // --- AUXILIARES --- //
+
+    private void limparTabela() {
+        for (int i = 0; i < chavesTabela.length(); i++) {
+            chavesTabela.set(i, 0L);
+            dadosTabela.set(i, 0L);
+        }
+    }
+
+    private static long empacotar(int valor, int jogada) {
+        return ((long) valor << 32) | (jogada & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Coloca a jogada indicada na frente do array (se ela estiver nele).
+     */
+    private static void ordenarPrimeiro(int[] jogadas, int jogada) {
+        for (int i = 0; i < jogadas.length; i++) {
+            if (jogadas[i] == jogada) {
+                jogadas[i] = jogadas[0];
+                jogadas[0] = jogada;
+                return;
+            }
+        }
+    }
+
+    // --- MEDIÇÃO --- //
+
+    /**
+     * Mede quanto a busca escala: joga a abertura de um gomoku e mostra profundidade e nós por segundo.
+     * Uso: java projeto.BuscaParalela [threads] [orcamentoMs] [largura] [altura] [alinhamento]
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long orcamentoMs = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int largura = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+        int altura = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+        int alinhamento = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        JogoDaVelha jogo = new JogoDaVelha("X", "O", largura, altura, alinhamento);
+        BuscaParalela busca = new BuscaParalela(threads, orcamentoMs);
+        for (int lance = 0; lance < 6 && !jogo.terminou(); lance++) {
+            int jogador = lance % 2 + 1;
+            long inicio = System.nanoTime();
+            int jogada = busca.melhorJogada(jogo, jogador);
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            jogo.jogaJogador(jogador, jogada);
+            System.out.printf("Jogada %d: posição %d, profundidade %d, %d nós, %.0f nós/s%n",
+                    lance + 1, jogada, busca.getUltimaProfundidade(), busca.getUltimosNos(),
+                    busca.getUltimosNos() / segundos);
+        }
+        System.out.println(jogo.getFoto());
+    }
+}
@@ -0,0 +1,35 @@
+package projeto;
+
+/**
+ * Estratégia de jogo da máquina: dada uma partida em andamento, escolhe a jogada do jogador da vez.
+ * Os níveis 1 a 5 do {@link JogoDaVelha} são estratégias ({@link #doNivel(int)}), e qualquer outra
+ * pode ser plugada numa partida com {@link JogoDaVelha#setEstrategiaMaquina(EstrategiaMaquina)}
+ * ou posta para enfrentar as demais no {@link TorneioMaquinas}.
+ * Uma mesma estratégia pode ser usada por várias partidas em threads diferentes ao mesmo tempo,
+ * então ela não deve guardar estado próprio (o estado fica na partida).
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+@FunctionalInterface
+public interface EstrategiaMaquina {
+
+    /**
+     * Escolhe, sem jogar, a jogada do jogador da vez. A partida não pode ter terminado.
+     * @param jogo A partida. A estratégia só pode consultá-la (ou jogar e desfazer, deixando-a como estava).
+     * @return A posição escolhida, livre.
+     */
+    int escolherJogada(JogoDaVelha jogo);
+
+    /**
+     * Retorna a estratégia de um dos níveis da máquina. Os motores dos níveis 4 e 5 (e o sorteio
+     * do nível 1) são os da própria partida, configurados por ela.
+     * @param nivel Nível de esperteza (1 a 5).
+     * @return A estratégia do nível.
+     */
+    static EstrategiaMaquina doNivel(int nivel) {
+        if (nivel < 1 || nivel > 5) {
+            throw new IllegalArgumentException("Nível da máquina deve ser entre 1 e 5.");
+        }
+        return jogo -> jogo.escolherJogada(nivel);
+    }
+}
@@ -0,0 +1,100 @@
+package projeto;
+
+/**
+ * Histograma de latências em nanossegundos, com baldes log-lineares (erro relativo de ~6%).
+ * Cada potência de 2 é dividida em 16 baldes, então o histograma inteiro é um long[] fixo
+ * e registrar um valor não aloca nada. Não é thread-safe: cada thread usa o seu e os
+ * histogramas são somados no fim com {@link #somar(HistogramaLatencia)}.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class HistogramaLatencia {
+
+    // --- ATRIBUTOS --- //
+    private static final int SUB_BALDES = 16; // Baldes por potência de 2 (4 bits de mantissa).
+    private static final int TOTAL_BALDES = 64 * SUB_BALDES;
+
+    private final long[] contagens = new long[TOTAL_BALDES];
+    private long total;
+    private long maximo;
+
+    // --- MÉTODOS --- //
+
+    /**
+     * Registra uma medição.
+     * @param nanos A latência medida, em nanossegundos.
+     */
+    void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        contagens[balde(nanos)]++;
+        total++;
+        if (nanos > maximo) maximo = nanos;
+    }
+
+    /**
+     * Acumula neste histograma as contagens de outro.
+     * @param outro O histograma a ser somado.
+     */
+    void somar(HistogramaLatencia outro) {
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            contagens[i] += outro.contagens[i];
+        }
+        total += outro.total;
+        maximo = Math.max(maximo, outro.maximo);
+    }
+
+    /**
+     * Retorna o percentil pedido (limite superior do balde em que ele cai).
+     * @param percentil Valor entre 0 e 100 (ex.: 99.9).
+     * @return A latência do percentil em nanossegundos, ou 0 se não há medições.
+     */
+    long percentil(double percentil) {
+        if (total == 0) return 0;
+        long alvo = (long) Math.ceil(total * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= Math.max(1, alvo)) {
+                return Math.min(limiteSuperior(i), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    long getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Resume o histograma numa linha (p50, p90, p99, p99.9 e máximo, em microssegundos).
+     */
+    String resumo() {
+        return String.format("p50=%.2fus p90=%.2fus p99=%.2fus p99.9=%.2fus max=%.2fus",
+                percentil(50) / 1e3, percentil(90) / 1e3, percentil(99) / 1e3,
+                percentil(99.9) / 1e3, maximo / 1e3);
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    /**
+     * Índice do balde: os valores até 15 ficam em baldes exatos; acima disso o expoente escolhe
+     * o grupo e os 4 bits logo abaixo do bit mais alto escolhem o balde dentro dele.
+     */
+    private static int balde(long valor) {
+        if (valor < SUB_BALDES) return (int) valor;
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int mantissa = (int) (valor >>> (expoente - 4)) & (SUB_BALDES - 1);
+        return (expoente - 3) * SUB_BALDES + mantissa;
+    }
+
+    private static long limiteSuperior(int balde) {
+        if (balde < SUB_BALDES) return balde;
+        int expoente = balde / SUB_BALDES + 3;
+        long mantissa = balde % SUB_BALDES;
+        return ((SUB_BALDES + mantissa + 1) << (expoente - 4)) - 1;
+    }
+}
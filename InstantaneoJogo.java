@@ -0,0 +1,292 @@
+package projeto;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Instantâneo imutável de uma partida em andamento: dimensões, modo, símbolos e as jogadas feitas.
+ * Tirar um instantâneo ({@link JogoDaVelha#getInstantaneo()}) é O(1): ele guarda o
+ * {@link RegistroJogadas} da partida, que até 16 células é um único long e nos tabuleiros maiores
+ * compartilha o array do jogo (protegido por cópia na escrita). Assim, quem precisa ramificar
+ * posições (uma busca, um servidor suspendendo sessões) guarda instantâneos sem copiar nada, e
+ * {@link #restaurar()} monta uma partida independente aplicando as jogadas direto no tabuleiro,
+ * sem as validações e exceções de cada jogaJogador.
+ *
+ * Formato binário ({@link #gravar(ByteBuffer)}), pensado para milhões de sessões: a versão
+ * (1 byte); largura, altura e alinhamento em varint; o nível da máquina (1 byte); os dois símbolos
+ * em UTF-8, cada um com 1 byte de tamanho; a quantidade de jogadas em varint; e as jogadas, duas
+ * por byte (4 bits cada, a primeira nos bits baixos) até 16 células, ou 1 ou 2 bytes cada
+ * (big-endian) nos tabuleiros maiores. Uma partida 3x3 em andamento ocupa no máximo 15 bytes.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public final class InstantaneoJogo {
+
+    // --- ATRIBUTOS --- //
+    private static final int VERSAO = 1;
+    private static final int MAXIMO_SIMBOLO = 255; // Bytes em UTF-8; o tamanho é gravado em 1 byte.
+
+    private final int largura;
+    private final int altura;
+    private final int alinhamento;
+    private final int nivelMaquina;
+    private final String simbolo1;
+    private final String simbolo2;
+    private final RegistroJogadas jogadas;
+
+    private InstantaneoJogo(int largura, int altura, int alinhamento, int nivelMaquina,
+                            String simbolo1, String simbolo2, RegistroJogadas jogadas) {
+        this.largura = largura;
+        this.altura = altura;
+        this.alinhamento = alinhamento;
+        this.nivelMaquina = nivelMaquina;
+        this.simbolo1 = simbolo1;
+        this.simbolo2 = simbolo2;
+        this.jogadas = jogadas;
+    }
+
+    /**
+     * Tira o instantâneo de uma partida, em O(1).
+     * @param jogo A partida.
+     * @return O instantâneo com as jogadas feitas até agora (as desfeitas ficam de fora).
+     */
+    static InstantaneoJogo de(JogoDaVelha jogo) {
+        return new InstantaneoJogo(jogo.getLargura(), jogo.getAltura(), jogo.getAlinhamento(), jogo.getNivelMaquina(),
+                jogo.getSimbolo(1), jogo.getSimbolo(2), jogo.getRegistro());
+    }
+
+    // --- MÉTODOS PÚBLICOS --- //
+
+    /**
+     * Monta uma partida nova e independente no ponto deste instantâneo.
+     * A máquina volta com a estratégia do seu nível e o sorteio com uma semente nova.
+     * @return A partida restaurada.
+     * @throws IllegalArgumentException Se o instantâneo (lido de um arquivo) for incoerente.
+     */
+    public JogoDaVelha restaurar() {
+        JogoDaVelha jogo = nivelMaquina == 0
+                ? new JogoDaVelha(simbolo1, simbolo2, largura, altura, alinhamento)
+                : new JogoDaVelha(simbolo1, nivelMaquina, largura, altura, alinhamento);
+        jogo.reproduzir(jogadas);
+        return jogo;
+    }
+
+    public int getLargura() {
+        return largura;
+    }
+
+    public int getAltura() {
+        return altura;
+    }
+
+    public int getAlinhamento() {
+        return alinhamento;
+    }
+
+    /**
+     * Retorna o nível da máquina: 1 a 5, ou 0 no modo Jogador vs. Jogador.
+     */
+    public int getNivelMaquina() {
+        return nivelMaquina;
+    }
+
+    /**
+     * Retorna o símbolo de um jogador.
+     * @param numeroJogador 1 ou 2.
+     */
+    public String getSimbolo(int numeroJogador) {
+        if (numeroJogador != 1 && numeroJogador != 2) {
+            throw new IllegalArgumentException("Número do jogador deve ser 1 ou 2.");
+        }
+        return numeroJogador == 1 ? simbolo1 : simbolo2;
+    }
+
+    /**
+     * Retorna as jogadas feitas até o instantâneo.
+     */
+    public RegistroJogadas getJogadas() {
+        return jogadas;
+    }
+
+    /**
+     * Retorna de quem seria a vez no ponto do instantâneo (1 ou 2).
+     */
+    public int getJogadorAtual() {
+        return jogadas.tamanho() % 2 + 1;
+    }
+
+    // --- FORMATO BINÁRIO --- //
+
+    /**
+     * Retorna quantos bytes {@link #gravar(ByteBuffer)} vai escrever.
+     */
+    public int tamanhoSerializado() {
+        return 1 + tamanhoVarint(largura) + tamanhoVarint(altura) + tamanhoVarint(alinhamento) + 1
+                + 1 + utf8(simbolo1).length + 1 + utf8(simbolo2).length
+                + tamanhoVarint(jogadas.tamanho()) + bytesDasJogadas(largura * altura, jogadas.tamanho());
+    }
+
+    /**
+     * Grava o instantâneo no buffer, a partir da posição atual.
+     * @param destino O buffer, com pelo menos {@link #tamanhoSerializado()} bytes livres.
+     */
+    public void gravar(ByteBuffer destino) {
+        byte[] bytes1 = utf8(simbolo1);
+        byte[] bytes2 = utf8(simbolo2);
+        destino.put((byte) VERSAO);
+        gravarVarint(destino, largura);
+        gravarVarint(destino, altura);
+        gravarVarint(destino, alinhamento);
+        destino.put((byte) nivelMaquina);
+        destino.put((byte) bytes1.length).put(bytes1);
+        destino.put((byte) bytes2.length).put(bytes2);
+        int quantidade = jogadas.tamanho();
+        gravarVarint(destino, quantidade);
+        int bytesPorJogada = RegistroJogadas.bytesPorJogada(largura * altura);
+        if (bytesPorJogada == 0) {
+            long compacto = jogadas.getCompacto();
+            for (int i = 0; i < (quantidade + 1) / 2; i++) {
+                destino.put((byte) (compacto >>> (8 * i)));
+            }
+        } else {
+            for (int lance = 0; lance < quantidade; lance++) {
+                if (bytesPorJogada == 1) {
+                    destino.put((byte) jogadas.posicao(lance));
+                } else {
+                    destino.putShort((short) jogadas.posicao(lance));
+                }
+            }
+        }
+    }
+
+    /**
+     * Grava o instantâneo num array novo, do tamanho exato.
+     */
+    public byte[] serializar() {
+        ByteBuffer destino = ByteBuffer.allocate(tamanhoSerializado());
+        gravar(destino);
+        return destino.array();
+    }
+
+    /**
+     * Lê um instantâneo gravado por {@link #gravar(ByteBuffer)}, a partir da posição atual do buffer.
+     * As jogadas em si são conferidas em {@link #restaurar()}.
+     * @param origem O buffer.
+     * @return O instantâneo lido.
+     * @throws IllegalArgumentException Se os bytes não formarem um instantâneo válido.
+     */
+    public static InstantaneoJogo ler(ByteBuffer origem) {
+        try {
+            int versao = origem.get() & 0xFF;
+            if (versao != VERSAO) {
+                throw new IllegalArgumentException("Versão de instantâneo desconhecida: " + versao + ".");
+            }
+            int largura = lerVarint(origem);
+            int altura = lerVarint(origem);
+            int alinhamento = lerVarint(origem);
+            int nivel = origem.get();
+            String simbolo1 = lerSimbolo(origem);
+            String simbolo2 = lerSimbolo(origem);
+            int quantidade = lerVarint(origem);
+            if (largura < 1 || altura < 1 || (long) largura * altura > JogoDaVelha.MAXIMO_CELULAS) {
+                throw new IllegalArgumentException("Dimensões inválidas no instantâneo: " + largura + "x" + altura + ".");
+            }
+            if (alinhamento < 1 || alinhamento > Math.max(largura, altura)) {
+                throw new IllegalArgumentException("Alinhamento inválido no instantâneo: " + alinhamento + ".");
+            }
+            if (nivel < 0 || nivel > 5) {
+                throw new IllegalArgumentException("Nível inválido no instantâneo: " + nivel + ".");
+            }
+            int total = largura * altura;
+            if (quantidade < 0 || quantidade > total) {
+                throw new IllegalArgumentException("O instantâneo tem mais jogadas que células.");
+            }
+            int bytesPorJogada = RegistroJogadas.bytesPorJogada(total);
+            RegistroJogadas jogadas;
+            if (bytesPorJogada == 0) {
+                long compacto = 0;
+                for (int i = 0; i < (quantidade + 1) / 2; i++) {
+                    compacto |= (origem.get() & 0xFFL) << (8 * i);
+                }
+                long mascara = quantidade == 16 ? -1L : (1L << (4 * quantidade)) - 1;
+                jogadas = RegistroJogadas.deCompacto(compacto & mascara, quantidade);
+            } else {
+                byte[] bytes = new byte[quantidade * bytesPorJogada];
+                origem.get(bytes);
+                jogadas = RegistroJogadas.deBytes(bytes, bytesPorJogada, quantidade);
+            }
+            return new InstantaneoJogo(largura, altura, alinhamento, nivel, simbolo1, simbolo2, jogadas);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Instantâneo truncado.", e);
+        }
+    }
+
+    /**
+     * Lê um instantâneo gravado por {@link #serializar()}.
+     */
+    public static InstantaneoJogo desserializar(byte[] bytes) {
+        return ler(ByteBuffer.wrap(bytes));
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    private static int bytesDasJogadas(int totalCelulas, int quantidade) {
+        int bytesPorJogada = RegistroJogadas.bytesPorJogada(totalCelulas);
+        return bytesPorJogada == 0 ? (quantidade + 1) / 2 : quantidade * bytesPorJogada;
+    }
+
+    private static byte[] utf8(String simbolo) {
+        byte[] bytes = simbolo.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAXIMO_SIMBOLO) {
+            throw new IllegalStateException("O símbolo \"" + simbolo + "\" é longo demais para o instantâneo.");
+        }
+        return bytes;
+    }
+
+    private static String lerSimbolo(ByteBuffer origem) {
+        byte[] bytes = new byte[origem.get() & 0xFF];
+        origem.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Inteiro não negativo em 7 bits por byte, o bit alto indicando que há mais bytes.
+     */
+    private static void gravarVarint(ByteBuffer destino, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            destino.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        destino.put((byte) valor);
+    }
+
+    /**
+     * Lê um inteiro gravado por {@link #gravarVarint(ByteBuffer, int)}. Só aceita valores de até
+     * 31 bits: o quinto byte traz os bits 28 a 30 e não pode ter mais nada.
+     */
+    private static int lerVarint(ByteBuffer origem) {
+        int valor = 0;
+        for (int deslocamento = 0; deslocamento < 28; deslocamento += 7) {
+            int b = origem.get();
+            valor |= (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        int ultimo = origem.get();
+        if ((ultimo & ~0x07) != 0) {
+            throw new IllegalArgumentException("Inteiro fora do intervalo no instantâneo.");
+        }
+        return valor | (ultimo << 28);
+    }
+
+    private static int tamanhoVarint(int valor) {
+        int bytes = 1;
+        while ((valor & ~0x7F) != 0) {
+            valor >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+}
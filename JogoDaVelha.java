@@ -3,31 +3,102 @@ package projeto;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Classe de lógica do Jogo da Velha.
  * Gerencia o estado do jogo, as jogadas e as regras, separando a lógica da interface gráfica.
+ * O tabuleiro é generalizado (m,n,k): largura x altura, vencendo quem alinhar k símbolos.
+ * O jogo clássico é o 3x3 com 3 em linha; um gomoku, por exemplo, é 15x15 com 5 em linha.
  * @author [Felipe Antonio Ramalho Macedo - 20232370036]
  * @author [Francisco Viana Maia Neto - 20232370011]
  */
 public class JogoDaVelha {
 
     // --- ATRIBUTOS --- //
-    // Array para representar nosso tabuleiro de 9 posições.
-    private String[] celulas;
+    // Tabuleiro em bitboard: cada jogador tem um conjunto de bits (bit i = posição i ocupada),
+    // guardado em palavras de 64 bits. No 3x3 tudo cabe nos 9 bits baixos da primeira palavra.
+    // Os símbolos só entram em cena na apresentação (getFoto/getHistorico).
+    private long[][] ocupadas;
+    // Dimensões do tabuleiro e quantos símbolos em linha são necessários para vencer.
+    private final int largura;
+    private final int altura;
+    private final int alinhamento;
+    // Resultado da partida, atualizado a cada jogada em efetivarJogada:
+    // 1 ou 2 (vencedor), 0 (empate) ou -1 (em andamento). Assim as consultas não varrem o tabuleiro.
+    private int resultado;
     // Guarda os símbolos dos jogadores. Ex: ["X", "O"].
     private String[] simbolos;
-    // Map para guardar o histórico de cada jogada (posição -> símbolo), mantendo a ordem de inserção.
-    private LinkedHashMap<Integer, String> historico;
+    // Registro das jogadas, na ordem em que foram feitas (o jogador de cada lance é implícito:
+    // o 1 joga nos lances pares e o 2 nos ímpares). Até 16 células, cada jogada ocupa 4 bits de
+    // registroCompacto; nos tabuleiros maiores, 1 ou 2 bytes de registro (ver RegistroJogadas).
+    // O registro também é a pilha de desfazer/refazer: as jogadas desfeitas continuam nele, além de
+    // quantidadeJogadas, até totalRegistrado, e refazer é só jogar a próxima posição registrada.
+    private long registroCompacto;
+    private byte[] registro;
+    private int bytesPorJogada;
+    private int totalRegistrado;
+    // Quantas jogadas as visões de getRegistro() já entregues enxergam. Uma jogada que sobrescreve
+    // uma delas (depois de desfazer) copia o array antes, para as visões não mudarem (cópia na escrita).
+    private int limiteCompartilhado;
     // Contador para sabermos quantas jogadas já foram feitas.
     private int quantidadeJogadas;
-    // Nível de "esperteza" da máquina: 1 para fácil (aleatório) ou 2 para difícil (com estratégia).
+    // Nível de "esperteza" da máquina: 1 para fácil (aleatório), 2 para difícil (com estratégia),
+    // 3 para perfeito (busca completa, nunca perde), 4 para busca paralela com limite de tempo
+    // ou 5 para Monte Carlo (árvore UCT com simulações aleatórias em várias threads).
     private int nivelEspertezaMaquina;
+    // Quem escolhe as jogadas da máquina: a estratégia do nível, a não ser que outra seja plugada.
+    private EstrategiaMaquina estrategiaMaquina;
+    // Opções da busca paralela (nível 4): threads de trabalho e tempo máximo por jogada.
+    private int threadsBusca = Runtime.getRuntime().availableProcessors();
+    private long orcamentoBuscaMs = 1000;
+    // Motor da busca paralela, criado na primeira jogada do nível 4 (as threads são de PoolsBusca).
+    private BuscaParalela buscaParalela;
+    // Opções do Monte Carlo (nível 5): threads, simulações por jogada e tempo máximo por jogada.
+    private int threadsMonteCarlo = Runtime.getRuntime().availableProcessors();
+    private int simulacoesMonteCarlo = 50_000;
+    private long orcamentoMonteCarloMs = 1000;
+    // Motor do Monte Carlo, criado na primeira jogada do nível 5 (as threads são de PoolsBusca;
+    // a semente de cada busca sai de aleatorio).
+    private BuscaMonteCarlo buscaMonteCarlo;
+    // Se o fim desta partida já entrou nas métricas (uma partida conta uma vez só, mesmo que o fim
+    // seja desfeito e refeito) e se as jogadas em curso são provisórias: a reprodução de um registro
+    // ou as tentativas de uma estratégia que joga e desfaz para pensar, que não encerram a partida.
+    private boolean fimRegistrado;
+    private boolean jogadasProvisorias;
+    // Quanto levou a última escolha feita por escolherJogadaMaquina(), para as métricas da jogada
+    // que jogaMaquina(int) aplica depois.
+    private long nanosEscolhaMaquina;
+    // Pedido para as buscas dos níveis 4 e 5 desta partida pararem (lido pelas threads da busca).
+    private volatile boolean buscaInterrompida;
+    // Gerador dos sorteios da máquina; pode receber uma semente para partidas reproduzíveis.
+    private SplittableRandom aleatorio = new SplittableRandom();
     // Controla de quem é a vez (1 ou 2).
     private int jogadorAtual;
+    // Hash de Zobrist da posição, atualizado com XOR a cada jogada. Há um hash por simetria do
+    // tabuleiro (hashes[s] é o hash da posição transformada pela simetria s; hashes[0] é o da
+    // própria posição), então a variante canônica é só o menor deles, sem varrer o tabuleiro.
+    private long[] hashes;
+    private long[] chavesZobrist;
+    private int[][] simetrias;
+    // Quem é avisado das mudanças no tabuleiro. Um array copiado a cada inscrição (que é rara),
+    // para que o aviso a cada jogada seja só um laço, sem nenhuma alocação.
+    private OuvinteTabuleiro[] ouvintes = SEM_OUVINTES;
+    private static final OuvinteTabuleiro[] SEM_OUVINTES = new OuvinteTabuleiro[0];
     // Símbolo reservado para a máquina, para garantir que não seja escolhido pelo jogador.
     private static final String SIMBOLO_MAQUINA = "m";
+    // Tamanho do tabuleiro clássico (3x3, 3 em linha).
+    static final int TAMANHO_CLASSICO = 3;
+    // Maior tabuleiro aceito: cada posição precisa caber em 2 bytes no registro de jogadas.
+    static final int MAXIMO_CELULAS = 1 << 16;
+    // As 4 direções (linha, coluna) que passam por uma célula: horizontal, vertical e as duas diagonais.
+    private static final int[][] DIRECOES = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    // As 8 combinações de vitória do 3x3 pré-calculadas como máscaras de bits (usadas pelos motores 3x3).
+    private static final int[] LINHAS_VITORIA = {
+        0b000_000_111, 0b000_111_000, 0b111_000_000, // Linhas.
+        0b001_001_001, 0b010_010_010, 0b100_100_100, // Colunas.
+        0b100_010_001, 0b001_010_100                 // Diagonais.
+    };
 
     // --- CONSTRUTORES --- //
 
@@ -38,6 +109,19 @@ public class JogoDaVelha {
      * @param simbolo2 Símbolo do Jogador 2.
      */
     public JogoDaVelha(String simbolo1, String simbolo2) {
+        this(simbolo1, simbolo2, TAMANHO_CLASSICO, TAMANHO_CLASSICO, TAMANHO_CLASSICO);
+    }
+
+    /**
+     * Construtor para o modo Jogador vs. Jogador num tabuleiro de tamanho configurável.
+     * @param simbolo1 Símbolo do Jogador 1.
+     * @param simbolo2 Símbolo do Jogador 2.
+     * @param largura Número de colunas do tabuleiro.
+     * @param altura Número de linhas do tabuleiro.
+     * @param alinhamento Quantos símbolos em linha são necessários para vencer.
+     */
+    public JogoDaVelha(String simbolo1, String simbolo2, int largura, int altura, int alinhamento) {
+        validarDimensoes(largura, altura, alinhamento);
         // Validações para garantir que os símbolos são válidos e diferentes.
         if (simbolo1 == null || simbolo1.trim().isEmpty() || simbolo1.equalsIgnoreCase(SIMBOLO_MAQUINA)) {
             throw new IllegalArgumentException("Símbolo do jogador 1 não pode ser vazio ou 'm'.");
@@ -50,6 +134,9 @@ public class JogoDaVelha {
         }
         this.simbolos = new String[]{simbolo1, simbolo2};
         this.nivelEspertezaMaquina = 0; // Usamos 0 para indicar que não há máquina.
+        this.largura = largura;
+        this.altura = altura;
+        this.alinhamento = alinhamento;
         inicializarJogo();
     }
 
@@ -57,17 +144,38 @@ public class JogoDaVelha {
      * Construtor para o modo Jogador vs. Máquina.
      * Recebe o símbolo do jogador e o nível de dificuldade da máquina.
      * @param simboloJogador1 Símbolo do jogador humano.
-     * @param nivel Nível de dificuldade da máquina (1 ou 2).
+     * @param nivel Nível de dificuldade da máquina (1 a 5).
      */
     public JogoDaVelha(String simboloJogador1, int nivel) {
+        this(simboloJogador1, nivel, TAMANHO_CLASSICO, TAMANHO_CLASSICO, TAMANHO_CLASSICO);
+    }
+
+    /**
+     * Construtor para o modo Jogador vs. Máquina num tabuleiro de tamanho configurável.
+     * O nível 3 (perfeito) só existe para o tabuleiro clássico 3x3.
+     * @param simboloJogador1 Símbolo do jogador humano.
+     * @param nivel Nível de dificuldade da máquina (1 a 5).
+     * @param largura Número de colunas do tabuleiro.
+     * @param altura Número de linhas do tabuleiro.
+     * @param alinhamento Quantos símbolos em linha são necessários para vencer.
+     */
+    public JogoDaVelha(String simboloJogador1, int nivel, int largura, int altura, int alinhamento) {
+        validarDimensoes(largura, altura, alinhamento);
         if (simboloJogador1 == null || simboloJogador1.trim().isEmpty() || simboloJogador1.equalsIgnoreCase(SIMBOLO_MAQUINA)) {
             throw new IllegalArgumentException("Símbolo do jogador não pode ser vazio ou 'm'.");
         }
-        if (nivel != 1 && nivel != 2) {
-            throw new IllegalArgumentException("Nível da máquina deve ser 1 (baixo) ou 2 (alto).");
+        if (nivel < 1 || nivel > 5) {
+            throw new IllegalArgumentException("Nível da máquina deve ser 1 (baixo), 2 (alto), 3 (perfeito), 4 (busca paralela) ou 5 (Monte Carlo).");
+        }
+        if (nivel == 3 && !ehClassico(largura, altura, alinhamento)) {
+            throw new IllegalArgumentException("O nível 3 (perfeito) só está disponível no tabuleiro 3x3.");
         }
         this.simbolos = new String[]{simboloJogador1, SIMBOLO_MAQUINA};
         this.nivelEspertezaMaquina = nivel;
+        this.estrategiaMaquina = EstrategiaMaquina.doNivel(nivel);
+        this.largura = largura;
+        this.altura = altura;
+        this.alinhamento = alinhamento;
         inicializarJogo();
     }
     
@@ -76,49 +184,268 @@ public class JogoDaVelha {
     /**
      * Valida e efetiva a jogada de um jogador no tabuleiro.
      * @param numeroJogador Jogador que está jogando (1 ou 2).
-     * @param posicao Posição no tabuleiro (0-8).
+     * @param posicao Posição no tabuleiro (0 até largura * altura - 1, linha a linha).
      */
     public void jogaJogador(int numeroJogador, int posicao) {
+        long inicio = MetricasJogo.ATIVAS ? System.nanoTime() : 0;
         // Verifica se o jogo já acabou ou se não é a vez do jogador.
-        if (terminou()) {
-            throw new IllegalStateException("O jogo já terminou. Não é possível fazer mais jogadas.");
+        if (resultado != -1) {
+            throw MetricasJogo.erro(new IllegalStateException("O jogo já terminou. Não é possível fazer mais jogadas."));
         }
         if (numeroJogador != this.jogadorAtual) {
-            throw new IllegalArgumentException("Não é a vez do jogador " + numeroJogador);
+            throw MetricasJogo.erro(new IllegalArgumentException("Não é a vez do jogador " + numeroJogador));
         }
         // Valida a posição, conforme solicitado no PDF.
-        if (posicao < 0 || posicao > 8) {
-            throw new IllegalArgumentException("Posição " + posicao + " é inválida. Deve ser entre 0 e 8.");
+        if (posicao < 0 || posicao >= getTotalCelulas()) {
+            throw MetricasJogo.erro(new IllegalArgumentException("Posição " + posicao + " é inválida. Deve ser entre 0 e " + (getTotalCelulas() - 1) + "."));
         }
-        if (!celulas[posicao].isEmpty()) {
-            throw new IllegalArgumentException("Posição " + posicao + " já está ocupada.");
+        if (estaOcupada(posicao)) {
+            throw MetricasJogo.erro(new IllegalArgumentException("Posição " + posicao + " já está ocupada."));
         }
         efetivarJogada(posicao, numeroJogador);
+        if (MetricasJogo.ATIVAS) {
+            MetricasJogo.jogadaJogador(System.nanoTime() - inicio);
+        }
     }
 
     /**
-     * Escolhe e realiza a jogada da máquina com base no nível de dificuldade.
+     * Escolhe e realiza a jogada da máquina com a sua estratégia (por padrão, a do nível de dificuldade).
      */
     public void jogaMaquina() {
+        validarVezDaMaquina();
+        long inicio = MetricasJogo.ATIVAS ? System.nanoTime() : 0;
+        // O evento só é criado quando uma gravação do Flight Recorder o habilitou.
+        MetricasJogo.EventoJogadaMaquina evento = null;
+        if (MetricasJogo.EventoJogadaMaquina.habilitado()) {
+            evento = new MetricasJogo.EventoJogadaMaquina();
+            evento.begin();
+        }
+        efetivarJogadaMaquina(escolherJogada(estrategiaMaquina), inicio, evento);
+    }
+
+    /**
+     * Escolhe, sem jogar, a jogada da máquina com a sua estratégia. Junto com {@link #jogaMaquina(int)},
+     * permite escolher numa thread e jogar em outra (ex.: a interface, que não pode travar a EDT).
+     * @return A posição escolhida.
+     */
+    int escolherJogadaMaquina() {
+        validarVezDaMaquina();
+        long inicio = System.nanoTime();
+        int posicao = escolherJogada(estrategiaMaquina);
+        nanosEscolhaMaquina = System.nanoTime() - inicio;
+        return posicao;
+    }
+
+    /**
+     * Realiza a jogada da máquina escolhida antes por {@link #escolherJogadaMaquina()}, com as mesmas
+     * validações, métricas (a latência inclui a escolha) e evento do Flight Recorder de {@link #jogaMaquina()}.
+     * @param posicao A posição escolhida.
+     */
+    void jogaMaquina(int posicao) {
+        validarVezDaMaquina();
+        long inicio = MetricasJogo.ATIVAS ? System.nanoTime() - nanosEscolhaMaquina : 0;
+        MetricasJogo.EventoJogadaMaquina evento = null;
+        if (MetricasJogo.EventoJogadaMaquina.habilitado()) {
+            evento = new MetricasJogo.EventoJogadaMaquina();
+            evento.begin();
+        }
+        efetivarJogadaMaquina(posicao, inicio, evento);
+    }
+
+    /**
+     * Interrompe a busca da máquina (níveis 4 e 5) em andamento nesta partida, e as que ela fizer
+     * depois: elas param no próximo controle do relógio e devolvem a melhor jogada que tiverem.
+     * Serve para abandonar a partida (ex.: a interface reiniciando o jogo) sem esperar o orçamento acabar.
+     */
+    void interromperBusca() {
+        buscaInterrompida = true;
+    }
+
+    boolean isBuscaInterrompida() {
+        return buscaInterrompida;
+    }
+
+    /**
+     * Confere se a máquina pode jogar agora.
+     */
+    private void validarVezDaMaquina() {
         if (nivelEspertezaMaquina == 0) {
-            throw new IllegalStateException("Não há máquina neste modo de jogo.");
+            throw MetricasJogo.erro(new IllegalStateException("Não há máquina neste modo de jogo."));
         }
         if (this.jogadorAtual != 2) { // A máquina é sempre o jogador 2.
-            throw new IllegalStateException("Não é a vez da máquina.");
+            throw MetricasJogo.erro(new IllegalStateException("Não é a vez da máquina."));
+        }
+        if (resultado != -1) {
+            throw MetricasJogo.erro(new IllegalStateException("O jogo já terminou."));
+        }
+    }
+
+    /**
+     * Aplica a jogada escolhida pela máquina e registra as métricas e o evento.
+     * @param inicio Quando a jogada começou (System.nanoTime()), se as métricas estão ligadas.
+     * @param evento O evento do Flight Recorder, ou null se nenhuma gravação o habilitou.
+     */
+    private void efetivarJogadaMaquina(int posicao, long inicio, MetricasJogo.EventoJogadaMaquina evento) {
+        if (posicao < 0 || posicao >= getTotalCelulas() || estaOcupada(posicao)) {
+            throw MetricasJogo.erro(new IllegalStateException("A estratégia da máquina escolheu uma posição inválida: " + posicao + "."));
+        }
+        efetivarJogada(posicao, 2);
+        if (MetricasJogo.ATIVAS) {
+            MetricasJogo.jogadaMaquina(nivelEspertezaMaquina, System.nanoTime() - inicio, nosDaUltimaBusca());
+        }
+        if (evento != null && evento.shouldCommit()) {
+            evento.nivel = nivelEspertezaMaquina;
+            evento.posicao = posicao;
+            evento.largura = largura;
+            evento.altura = altura;
+            evento.nos = nosDaUltimaBusca();
+            evento.commit();
+        }
+    }
+
+    /**
+     * Troca a estratégia da máquina desta partida (o nível continua o mesmo para as métricas e
+     * para os motores dos níveis 4 e 5, que a nova estratégia pode usar por {@link #escolherJogada(int)}).
+     * @param estrategia A nova estratégia.
+     */
+    public void setEstrategiaMaquina(EstrategiaMaquina estrategia) {
+        if (nivelEspertezaMaquina == 0) {
+            throw new IllegalStateException("Não há máquina neste modo de jogo.");
+        }
+        if (estrategia == null) {
+            throw new IllegalArgumentException("A estratégia da máquina não pode ser nula.");
         }
-        if (terminou()) {
-            throw new IllegalStateException("O jogo já terminou.");
+        this.estrategiaMaquina = estrategia;
+    }
+
+    /**
+     * Pede a jogada do jogador da vez a uma estratégia, sem jogá-la. As jogadas que a estratégia
+     * fizer (e desfizer) na partida para pensar não contam como fim de partida nas métricas.
+     * @param estrategia A estratégia.
+     * @return A posição escolhida pela estratégia (não é validada aqui).
+     */
+    int escolherJogada(EstrategiaMaquina estrategia) {
+        boolean provisoriasAntes = jogadasProvisorias;
+        jogadasProvisorias = true;
+        try {
+            return estrategia.escolherJogada(this);
+        } finally {
+            jogadasProvisorias = provisoriasAntes;
         }
+    }
+
+    /**
+     * Nós visitados (nível 4) ou simulações (nível 5) na última escolha da máquina; 0 nos demais níveis.
+     */
+    private long nosDaUltimaBusca() {
+        if (nivelEspertezaMaquina == 4 && buscaParalela != null) return buscaParalela.getUltimosNos();
+        if (nivelEspertezaMaquina == 5 && buscaMonteCarlo != null) return buscaMonteCarlo.getUltimasSimulacoes();
+        return 0;
+    }
 
-        int posicaoEscolhida;
-        if (nivelEspertezaMaquina == 1) { // Nível Baixo: jogada aleatória.
-            Random random = new Random();
-            ArrayList<Integer> posicoesDisponiveis = getPosicoesDisponiveis();
-            posicaoEscolhida = posicoesDisponiveis.get(random.nextInt(posicoesDisponiveis.size()));
-        } else { // Nível Alto: usa uma estratégia para vencer ou bloquear.
-            posicaoEscolhida = encontrarMelhorJogada();
+    /**
+     * Escolhe, sem jogar, a jogada do jogador da vez segundo um nível de esperteza.
+     * Permite que qualquer um dos dois lados seja controlado pela máquina (ex.: simulações em lote).
+     * @param nivel Nível de esperteza (1 a 5).
+     * @return A posição escolhida.
+     */
+    int escolherJogada(int nivel) {
+        int jogador = this.jogadorAtual;
+        if (nivel == 1) { // Nível Baixo: jogada aleatória.
+            return enesimaLivre(aleatorio.nextInt(getTotalCelulas() - quantidadeJogadas));
+        } else if (nivel == 2) { // Nível Alto: usa uma estratégia para vencer ou bloquear.
+            return encontrarMelhorJogada(jogador);
+        } else if (nivel == 3) { // Nível Perfeito: consulta a tabela pré-calculada (ou o negamax, se não houver arquivo).
+            if (!ehClassico(largura, altura, alinhamento)) {
+                throw new IllegalArgumentException("O nível 3 (perfeito) só está disponível no tabuleiro 3x3.");
+            }
+            return TabelaPerfeita.melhorJogada(getMascara(jogador), getMascara(3 - jogador));
+        } else if (nivel == 4) { // Nível Busca Paralela: alfa-beta em várias threads até o orçamento de tempo acabar.
+            if (buscaParalela == null) {
+                buscaParalela = new BuscaParalela(threadsBusca, orcamentoBuscaMs);
+            }
+            return buscaParalela.melhorJogada(this, jogador);
+        } else if (nivel == 5) { // Nível Monte Carlo: a jogada mais visitada nas árvores UCT de todas as threads.
+            if (buscaMonteCarlo == null) {
+                buscaMonteCarlo = new BuscaMonteCarlo(threadsMonteCarlo, simulacoesMonteCarlo, orcamentoMonteCarloMs);
+            }
+            return buscaMonteCarlo.melhorJogada(this, jogador, aleatorio.nextLong());
         }
-        efetivarJogada(posicaoEscolhida, 2);
+        throw new IllegalArgumentException("Nível da máquina deve ser entre 1 e 5.");
+    }
+
+    /**
+     * Define a semente dos sorteios da máquina, tornando a partida reproduzível.
+     * @param semente A semente do gerador.
+     */
+    public void definirSemente(long semente) {
+        this.aleatorio = new SplittableRandom(semente);
+    }
+
+    /**
+     * Configura a busca paralela do nível 4.
+     * @param threads Quantas threads a busca pode usar.
+     * @param orcamentoMs Tempo máximo, em milissegundos, para a máquina escolher cada jogada.
+     */
+    public void configurarBusca(int threads, long orcamentoMs) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A busca precisa de pelo menos 1 thread.");
+        }
+        if (orcamentoMs < 1) {
+            throw new IllegalArgumentException("O orçamento de tempo deve ser de pelo menos 1 ms.");
+        }
+        this.threadsBusca = threads;
+        this.orcamentoBuscaMs = orcamentoMs;
+        if (buscaParalela != null) {
+            buscaParalela.configurar(threads, orcamentoMs); // Mantém a tabela de transposição.
+        }
+    }
+
+    /**
+     * Faz a partida usar motores já criados nos níveis 4 e 5, com as opções deles, em vez de criar
+     * os seus. Serve para quem joga muitas partidas seguidas (torneios, simulações, protocolos)
+     * reaproveitar um par de motores, e a tabela da busca paralela, por thread: um motor faz uma
+     * busca de cada vez. configurarBusca e configurarMonteCarlo passam a reconfigurar esses motores.
+     * @param busca O motor do nível 4.
+     * @param monteCarlo O motor do nível 5.
+     */
+    void usarMotores(BuscaParalela busca, BuscaMonteCarlo monteCarlo) {
+        this.buscaParalela = busca;
+        this.threadsBusca = busca.getThreads();
+        this.orcamentoBuscaMs = busca.getOrcamentoMs();
+        this.buscaMonteCarlo = monteCarlo;
+        this.threadsMonteCarlo = monteCarlo.getThreads();
+        this.simulacoesMonteCarlo = monteCarlo.getSimulacoes();
+        this.orcamentoMonteCarloMs = monteCarlo.getOrcamentoMs();
+    }
+
+    /**
+     * Configura a busca Monte Carlo do nível 5. A busca para no primeiro limite atingido.
+     * @param threads Quantas árvores independentes são montadas em paralelo.
+     * @param simulacoes Total de simulações por jogada (0 = sem limite).
+     * @param orcamentoMs Tempo máximo, em milissegundos, por jogada (0 = sem limite).
+     */
+    public void configurarMonteCarlo(int threads, int simulacoes, long orcamentoMs) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("O Monte Carlo precisa de pelo menos 1 thread.");
+        }
+        if (simulacoes < 0 || orcamentoMs < 0 || (simulacoes == 0 && orcamentoMs == 0)) {
+            throw new IllegalArgumentException("Informe um limite de simulações ou de tempo positivo.");
+        }
+        this.threadsMonteCarlo = threads;
+        this.simulacoesMonteCarlo = simulacoes;
+        this.orcamentoMonteCarloMs = orcamentoMs;
+        if (buscaMonteCarlo != null) {
+            buscaMonteCarlo.configurar(threads, simulacoes, orcamentoMs);
+        }
+    }
+
+    /**
+     * Retorna a vazão da última jogada do Monte Carlo, para ajuste fino.
+     * @return Simulações por segundo na última jogada do nível 5, ou 0 se ainda não houve.
+     */
+    public double getSimulacoesPorSegundo() {
+        return buscaMonteCarlo == null ? 0 : buscaMonteCarlo.getUltimasSimulacoesPorSegundo();
     }
 
     /**
@@ -126,8 +453,13 @@ public class JogoDaVelha {
      * @return true se o jogo acabou, false caso contrário.
      */
     public boolean terminou() {
-        // O jogo termina se um dos jogadores venceu, ou se todas as 9 células foram preenchidas.
-        return verificaVencedor(simbolos[0]) || verificaVencedor(simbolos[1]) || quantidadeJogadas == 9;
+        // O jogo termina se um dos jogadores venceu, ou se todas as células foram preenchidas.
+        // As duas coisas já foram verificadas em efetivarJogada; aqui é só a leitura do campo
+        // (rápida demais para cronometrar, então as métricas só contam as consultas).
+        if (MetricasJogo.ATIVAS) {
+            MetricasJogo.consultaTerminou();
+        }
+        return resultado != -1;
     }
 
     /**
@@ -135,10 +467,7 @@ public class JogoDaVelha {
      * @return 1 (vitória P1), 2 (vitória P2/máquina), 0 (empate), -1 (em andamento).
      */
     public int getResultado() {
-        if (verificaVencedor(simbolos[0])) return 1;
-        if (verificaVencedor(simbolos[1])) return 2;
-        if (quantidadeJogadas == 9) return 0;
-        return -1; // -1 significa que o jogo ainda não acabou.
+        return resultado; // -1 significa que o jogo ainda não acabou.
     }
 
     /**
@@ -152,6 +481,54 @@ public class JogoDaVelha {
         }
         return simbolos[numeroJogador - 1];
     }
+
+    /**
+     * Retorna o nível de esperteza da máquina.
+     * @return 1 a 5, ou 0 no modo Jogador vs. Jogador.
+     */
+    public int getNivelMaquina() {
+        return nivelEspertezaMaquina;
+    }
+
+    /**
+     * Retorna de quem é a vez.
+     * @return 1 ou 2.
+     */
+    public int getJogadorAtual() {
+        return jogadorAtual;
+    }
+
+    /**
+     * Retorna o número de colunas do tabuleiro.
+     * @return A largura do tabuleiro.
+     */
+    public int getLargura() {
+        return largura;
+    }
+
+    /**
+     * Retorna o número de linhas do tabuleiro.
+     * @return A altura do tabuleiro.
+     */
+    public int getAltura() {
+        return altura;
+    }
+
+    /**
+     * Retorna quantos símbolos em linha são necessários para vencer.
+     * @return O valor de k no jogo (m,n,k).
+     */
+    public int getAlinhamento() {
+        return alinhamento;
+    }
+
+    /**
+     * Retorna o número total de células do tabuleiro.
+     * @return largura * altura.
+     */
+    public int getTotalCelulas() {
+        return largura * altura;
+    }
     
     /**
      * Retorna uma "foto" do tabuleiro, uma representação textual bidimensional.
@@ -159,11 +536,13 @@ public class JogoDaVelha {
      */
     public String getFoto() {
         StringBuilder foto = new StringBuilder();
-        for (int i = 0; i < 9; i++) {
-            foto.append(celulas[i].isEmpty() ? " " : celulas[i]); // Usa espaço para célula vazia.
+        int total = getTotalCelulas();
+        String divisoria = "\n" + "-".repeat(2 * largura - 1) + "\n"; // "-----" no 3x3.
+        for (int i = 0; i < total; i++) {
+            foto.append(simboloDaCelula(i)); // Traduz o bit da posição para o símbolo (ou espaço).
             // Adiciona a formatação de quebra de linha e divisórias.
-            if ((i + 1) % 3 == 0) {
-                if (i < 8) foto.append("\n-----\n");
+            if ((i + 1) % largura == 0) {
+                if (i < total - 1) foto.append(divisoria);
             } else {
                 foto.append(" | ");
             }
@@ -171,27 +550,271 @@ public class JogoDaVelha {
         return foto.toString();
     }
     
+    /**
+     * Retorna o dono de uma célula.
+     * @param posicao Posição no tabuleiro (0 até getTotalCelulas() - 1).
+     * @return 1 ou 2 se a célula pertence a um jogador, 0 se está livre.
+     */
+    public int getDonoCelula(int posicao) {
+        if (posicao < 0 || posicao >= getTotalCelulas()) {
+            throw new IllegalArgumentException("Posição " + posicao + " é inválida. Deve ser entre 0 e " + (getTotalCelulas() - 1) + ".");
+        }
+        if (temBit(ocupadas[0], posicao)) return 1;
+        if (temBit(ocupadas[1], posicao)) return 2;
+        return 0;
+    }
+
+    /**
+     * Copia o tabuleiro para um buffer fornecido por quem chama, uma célula por byte.
+     * É a forma estruturada de ler o tabuleiro inteiro, sem passar pelo texto de getFoto.
+     * @param destino Buffer com pelo menos getTotalCelulas() posições.
+     * @return Quantas células foram escritas (getTotalCelulas()); cada uma vale 0 (livre), 1 ou 2 (dono).
+     */
+    public int copiarTabuleiro(byte[] destino) {
+        int total = getTotalCelulas();
+        if (destino.length < total) {
+            throw new IllegalArgumentException("O buffer precisa de espaço para " + total + " células.");
+        }
+        for (int palavra = 0; palavra < ocupadas[0].length; palavra++) {
+            for (int j = 0; j < 2; j++) {
+                for (long bits = ocupadas[j][palavra]; bits != 0; bits &= bits - 1) {
+                    destino[(palavra << 6) + Long.numberOfTrailingZeros(bits)] = (byte) (j + 1);
+                }
+            }
+        }
+        // As células livres são as que não apareceram acima.
+        for (int palavra = 0; palavra < ocupadas[0].length; palavra++) {
+            for (long bits = palavraLivre(palavra); bits != 0; bits &= bits - 1) {
+                destino[(palavra << 6) + Long.numberOfTrailingZeros(bits)] = 0;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Retorna o hash de Zobrist da posição atual (o mesmo usado pelas buscas).
+     * Duas partidas com as mesmas células ocupadas pelos mesmos jogadores têm o mesmo hash,
+     * qualquer que tenha sido a ordem das jogadas.
+     * @return O hash de 64 bits da posição.
+     */
+    public long getHash() {
+        return hashes[0];
+    }
+
+    /**
+     * Retorna o hash de Zobrist da forma canônica da posição: o mesmo para todas as posições
+     * equivalentes por rotação ou espelhamento. Serve de chave para caches e estatísticas
+     * que não devem distinguir posições simétricas.
+     * @return O menor hash entre as simetrias do tabuleiro.
+     */
+    public long getHashCanonico() {
+        long menor = hashes[0];
+        for (int s = 1; s < hashes.length; s++) {
+            if (Long.compareUnsigned(hashes[s], menor) < 0) menor = hashes[s];
+        }
+        return menor;
+    }
+
+    /**
+     * Inscreve um ouvinte para ser avisado a cada célula que muda.
+     * @param ouvinte O ouvinte (não pode ser null).
+     */
+    public void adicionarOuvinte(OuvinteTabuleiro ouvinte) {
+        if (ouvinte == null) {
+            throw new IllegalArgumentException("O ouvinte não pode ser null.");
+        }
+        OuvinteTabuleiro[] novos = Arrays.copyOf(ouvintes, ouvintes.length + 1);
+        novos[ouvintes.length] = ouvinte;
+        ouvintes = novos;
+    }
+
+    /**
+     * Cancela a inscrição de um ouvinte.
+     * @param ouvinte O ouvinte inscrito antes.
+     */
+    public void removerOuvinte(OuvinteTabuleiro ouvinte) {
+        for (int i = 0; i < ouvintes.length; i++) {
+            if (ouvintes[i] == ouvinte) {
+                OuvinteTabuleiro[] novos = new OuvinteTabuleiro[ouvintes.length - 1];
+                System.arraycopy(ouvintes, 0, novos, 0, i);
+                System.arraycopy(ouvintes, i + 1, novos, i, novos.length - i);
+                ouvintes = novos.length == 0 ? SEM_OUVINTES : novos;
+                return;
+            }
+        }
+    }
+
     /**
      * Retorna uma lista com as posições que ainda estão livres no tabuleiro.
+     * Mantido por compatibilidade: aloca uma lista de Integer a cada chamada. Em laços quentes,
+     * prefira {@link #getPosicoesDisponiveis(int[])} ou {@link #getMascaraDisponiveis()}.
      * @return ArrayList com os índices das posições disponíveis.
      */
     public ArrayList<Integer> getPosicoesDisponiveis() {
-        ArrayList<Integer> disponiveis = new ArrayList<>();
-        for (int i = 0; i < celulas.length; i++) {
-            if (celulas[i].isEmpty()) {
-                disponiveis.add(i);
-            }
+        int[] buffer = new int[getTotalCelulas() - quantidadeJogadas];
+        int quantidade = getPosicoesDisponiveis(buffer);
+        ArrayList<Integer> disponiveis = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            disponiveis.add(buffer[i]);
         }
         return disponiveis;
     }
 
     /**
-     * Retorna uma cópia do histórico de jogadas da partida.
-     * @return Um LinkedHashMap contendo os pares <posição, símbolo>.
+     * Escreve as posições livres, em ordem crescente, num buffer fornecido por quem chama.
+     * Não aloca nada: o mesmo buffer pode ser reaproveitado a cada jogada.
+     * @param destino Buffer com espaço para pelo menos (total de células - jogadas feitas) posições.
+     * @return Quantas posições foram escritas no início do buffer.
+     */
+    public int getPosicoesDisponiveis(int[] destino) {
+        int livres = getTotalCelulas() - quantidadeJogadas;
+        if (destino.length < livres) {
+            throw new IllegalArgumentException("O buffer precisa de espaço para " + livres + " posições.");
+        }
+        int quantidade = 0;
+        for (int palavra = 0; palavra < ocupadas[0].length; palavra++) {
+            long bits = palavraLivre(palavra);
+            while (bits != 0) {
+                destino[quantidade++] = (palavra << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1; // Desliga o bit mais baixo.
+            }
+        }
+        return quantidade;
+    }
+
+    /**
+     * Retorna as posições livres como uma máscara de bits (bit i ligado = posição i livre).
+     * Disponível para tabuleiros de até 64 células (o 3x3 usa só os 9 bits baixos).
+     * @return A máscara das posições livres.
+     */
+    public long getMascaraDisponiveis() {
+        if (getTotalCelulas() > 64) {
+            throw new IllegalStateException("A máscara só está disponível para tabuleiros de até 64 células.");
+        }
+        return palavraLivre(0);
+    }
+
+    /**
+     * Retorna o histórico de jogadas da partida como um mapa.
+     * Mantido por compatibilidade: monta um mapa novo a cada chamada. Prefira {@link #getRegistro()}.
+     * @return Um LinkedHashMap contendo os pares <posição, símbolo>, na ordem das jogadas.
      */
     public LinkedHashMap<Integer, String> getHistorico() {
-        // Retornamos uma cópia para proteger o histórico original de modificações externas.
-        return new LinkedHashMap<>(historico);
+        RegistroJogadas jogadas = getRegistro();
+        LinkedHashMap<Integer, String> historico = new LinkedHashMap<>();
+        for (int lance = 0; lance < jogadas.tamanho(); lance++) {
+            historico.put(jogadas.posicao(lance), simbolos[jogadas.jogador(lance) - 1]);
+        }
+        return historico;
+    }
+
+    /**
+     * Retorna as jogadas da partida numa visão compacta e somente leitura, sem copiar nada.
+     * A visão enxerga as jogadas feitas até o momento da chamada.
+     * @return O registro das jogadas.
+     */
+    public RegistroJogadas getRegistro() {
+        if (registro == null) {
+            // O long é copiado por valor; só as jogadas feitas entram (as desfeitas ficam de fora).
+            long mascara = quantidadeJogadas == 16 ? -1L : (1L << (4 * quantidadeJogadas)) - 1;
+            return RegistroJogadas.deCompacto(registroCompacto & mascara, quantidadeJogadas);
+        }
+        limiteCompartilhado = Math.max(limiteCompartilhado, quantidadeJogadas);
+        return RegistroJogadas.deBytes(registro, bytesPorJogada, quantidadeJogadas);
+    }
+
+    /**
+     * Tira um instantâneo imutável da partida, em tempo constante (ver {@link InstantaneoJogo}).
+     * @return O instantâneo, que pode ser restaurado ou gravado em formato binário.
+     */
+    public InstantaneoJogo getInstantaneo() {
+        return InstantaneoJogo.de(this);
+    }
+
+    /**
+     * Retorna quantas jogadas já foram feitas (sem contar as desfeitas).
+     * @return O número de jogadas no tabuleiro.
+     */
+    public int getQuantidadeJogadas() {
+        return quantidadeJogadas;
+    }
+
+    /**
+     * Indica se há jogada para desfazer.
+     * @return true se pelo menos uma jogada foi feita.
+     */
+    public boolean podeDesfazer() {
+        return quantidadeJogadas > 0;
+    }
+
+    /**
+     * Indica se há jogada desfeita para refazer.
+     * @return true se a última ação foi desfazer (sem jogada diferente depois).
+     */
+    public boolean podeRefazer() {
+        return quantidadeJogadas < totalRegistrado;
+    }
+
+    /**
+     * Desfaz a última jogada em tempo constante: libera a célula e restaura a vez, o número de
+     * jogadas, o registro, o resultado e o hash. Par de jogaJogador para buscas do tipo
+     * "faz/desfaz" num único jogo, sem cópias. A jogada desfeita pode ser refeita com refazer().
+     * @return A posição que foi liberada.
+     */
+    public int desfazer() {
+        if (quantidadeJogadas == 0) {
+            throw new IllegalStateException("Não há jogada para desfazer.");
+        }
+        int posicao = posicaoRegistrada(quantidadeJogadas - 1);
+        int numeroJogador = (quantidadeJogadas - 1) % 2 + 1; // O jogador 1 joga nos lances pares.
+        ocupadas[numeroJogador - 1][posicao >>> 6] &= ~(1L << posicao);
+        quantidadeJogadas--;
+        for (int s = 0; s < hashes.length; s++) {
+            hashes[s] ^= chavesZobrist[2 * simetrias[s][posicao] + numeroJogador - 1];
+        }
+        // Toda partida acaba na jogada que a decidiu, então antes dela o jogo estava em andamento.
+        resultado = -1;
+        jogadorAtual = numeroJogador;
+        avisarOuvintes(posicao, 0);
+        return posicao;
+    }
+
+    /**
+     * Refaz a última jogada desfeita, em tempo constante.
+     * @return A posição jogada.
+     */
+    public int refazer() {
+        if (!podeRefazer()) {
+            throw new IllegalStateException("Não há jogada para refazer.");
+        }
+        int posicao = posicaoRegistrada(quantidadeJogadas);
+        efetivarJogada(posicao, jogadorAtual);
+        return posicao;
+    }
+
+    /**
+     * Aplica as jogadas de um registro numa partida recém-criada, direto no tabuleiro: sem a
+     * conferência de vez e as exceções de cada jogaJogador, só o que um registro corrompido
+     * poderia trazer (posição fora do tabuleiro, célula ocupada ou jogada depois do fim).
+     * @param jogadas As jogadas, na ordem, começando pelo jogador 1.
+     */
+    void reproduzir(RegistroJogadas jogadas) {
+        if (quantidadeJogadas != 0) {
+            throw new IllegalStateException("Só uma partida sem jogadas pode reproduzir um registro.");
+        }
+        jogadasProvisorias = true; // A partida pode ter terminado antes, onde o registro foi feito.
+        try {
+            for (int lance = 0; lance < jogadas.tamanho(); lance++) {
+                int posicao = jogadas.posicao(lance);
+                if (resultado != -1 || posicao < 0 || posicao >= getTotalCelulas() || estaOcupada(posicao)) {
+                    throw new IllegalArgumentException("Registro de jogadas inválido no lance " + (lance + 1) + ".");
+                }
+                efetivarJogada(posicao, jogadorAtual);
+            }
+        } finally {
+            jogadasProvisorias = false;
+        }
+        fimRegistrado = resultado != -1;
     }
 
     // --- MÉTODOS PRIVADOS (LÓGICA INTERNA) --- //
@@ -201,75 +824,288 @@ public class JogoDaVelha {
      * Chamado pelos construtores.
      */
     private void inicializarJogo() {
-        this.celulas = new String[9];
-        Arrays.fill(this.celulas, ""); // Preenche o tabuleiro com strings vazias.
-        this.historico = new LinkedHashMap<>();
+        int palavras = (getTotalCelulas() + 63) >>> 6;
+        this.ocupadas = new long[2][palavras]; // Tabuleiro vazio: nenhum bit ligado para nenhum jogador.
+        this.resultado = -1;
+        this.chavesZobrist = Zobrist.chaves(getTotalCelulas());
+        this.simetrias = Simetrias.doTabuleiro(largura, altura);
+        this.hashes = new long[simetrias.length]; // Tabuleiro vazio: hash 0 em todas as simetrias.
+        this.bytesPorJogada = RegistroJogadas.bytesPorJogada(getTotalCelulas());
+        this.registroCompacto = 0L;
+        this.registro = bytesPorJogada == 0 ? null : new byte[getTotalCelulas() * bytesPorJogada];
+        this.totalRegistrado = 0;
+        this.limiteCompartilhado = 0;
         this.quantidadeJogadas = 0;
         this.jogadorAtual = 1; // O jogador 1 sempre começa.
     }
 
     /**
-     * Realiza a jogada de fato: marca a célula, atualiza o histórico e troca o turno.
+     * Realiza a jogada de fato: marca a célula, atualiza o registro, o hash, o resultado e troca o turno.
+     * A vitória é verificada só nas 4 direções que passam pela célula jogada, então o custo
+     * por jogada não cresce com o tamanho do tabuleiro, e uma partida encerrada nunca é revarrida.
      */
     private void efetivarJogada(int posicao, int numeroJogador) {
-        celulas[posicao] = getSimbolo(numeroJogador);
-        historico.put(posicao, celulas[posicao]);
+        long[] bits = ocupadas[numeroJogador - 1];
+        bits[posicao >>> 6] |= 1L << posicao;
+        // Se é a jogada que tinha sido desfeita (refazer), o registro já a contém.
+        boolean refeita = quantidadeJogadas < totalRegistrado && posicaoRegistrada(quantidadeJogadas) == posicao;
+        if (!refeita) {
+            registrar(posicao);
+            totalRegistrado = quantidadeJogadas + 1; // Uma jogada nova descarta as que dava para refazer.
+        }
         quantidadeJogadas++;
+        for (int s = 0; s < hashes.length; s++) {
+            hashes[s] ^= chavesZobrist[2 * simetrias[s][posicao] + numeroJogador - 1];
+        }
+        if (formaLinha(bits, posicao)) {
+            resultado = numeroJogador;
+            registrarFim();
+        } else if (quantidadeJogadas == getTotalCelulas()) {
+            resultado = 0; // Tabuleiro cheio sem vencedor: empate.
+            registrarFim();
+        }
         // Troca o jogador: se era 1 vira 2, se era 2 vira 1.
         jogadorAtual = (jogadorAtual == 1) ? 2 : 1;
+        avisarOuvintes(posicao, numeroJogador);
     }
 
     /**
-     * Lógica da "esperteza alta" da máquina. Segue uma hierarquia de decisões.
-     * @return A melhor posição para a máquina jogar.
+     * Registra o fim da partida nas métricas, só na primeira vez que ela termina com uma jogada de verdade.
      */
-    private int encontrarMelhorJogada() {
-        ArrayList<Integer> posicoesDisponiveis = getPosicoesDisponiveis();
+    private void registrarFim() {
+        if (!fimRegistrado && !jogadasProvisorias) {
+            fimRegistrado = true;
+            MetricasJogo.partidaTerminada(this);
+        }
+    }
 
+    /**
+     * Grava a posição no registro, no lugar da jogada atual.
+     */
+    private void registrar(int posicao) {
+        if (registro == null) {
+            int deslocamento = 4 * quantidadeJogadas;
+            registroCompacto = (registroCompacto & ~(0xFL << deslocamento)) | ((long) posicao << deslocamento);
+            return;
+        }
+        if (quantidadeJogadas < limiteCompartilhado) {
+            // Uma visão já entregue enxerga esta jogada (que foi desfeita): copia antes de sobrescrever.
+            registro = registro.clone();
+            limiteCompartilhado = 0;
+        }
+        RegistroJogadas.gravar(registro, bytesPorJogada, quantidadeJogadas, posicao);
+    }
+
+    /**
+     * Lê a posição de um lance do registro (feito ou desfeito).
+     */
+    private int posicaoRegistrada(int lance) {
+        if (registro == null) {
+            return (int) (registroCompacto >>> (4 * lance)) & 0xF;
+        }
+        if (bytesPorJogada == 1) {
+            return registro[lance] & 0xFF;
+        }
+        return ((registro[2 * lance] & 0xFF) << 8) | (registro[2 * lance + 1] & 0xFF);
+    }
+
+    /**
+     * Avisa os ouvintes inscritos de que uma célula mudou.
+     */
+    private void avisarOuvintes(int posicao, int dono) {
+        for (OuvinteTabuleiro ouvinte : ouvintes) {
+            ouvinte.celulaAlterada(this, posicao, dono);
+        }
+    }
+
+    /**
+     * Lógica da "esperteza alta" da máquina. Segue uma hierarquia de decisões.
+     * @param jogador O jogador para quem a jogada é escolhida (a máquina é o 2).
+     * @return A melhor posição para o jogador jogar.
+     */
+    private int encontrarMelhorJogada(int jogador) {
+        // As casas livres são percorridas direto nos bits, sem montar listas.
         // 1. Prioridade máxima: Se a máquina pode ganhar, ela joga para ganhar.
-        for (int pos : posicoesDisponiveis) {
-            celulas[pos] = getSimbolo(2); // Simula a jogada.
-            if (verificaVencedor(getSimbolo(2))) {
-                celulas[pos] = ""; // Desfaz a simulação.
-                return pos;
+        for (int palavra = 0; palavra < ocupadas[0].length; palavra++) {
+            for (long bits = palavraLivre(palavra); bits != 0; bits &= bits - 1) {
+                int pos = (palavra << 6) + Long.numberOfTrailingZeros(bits);
+                // Simula a jogada: formaLinha trata a posição como ocupada, sem mexer no tabuleiro.
+                if (formaLinha(ocupadas[jogador - 1], pos)) {
+                    return pos;
+                }
             }
-            celulas[pos] = ""; // Desfaz a simulação.
         }
 
-        // 2. Segunda prioridade: Se o jogador está prestes a ganhar, bloqueia.
-        for (int pos : posicoesDisponiveis) {
-            celulas[pos] = getSimbolo(1); // Simula a jogada do oponente.
-            if (verificaVencedor(getSimbolo(1))) {
-                celulas[pos] = ""; // Desfaz a simulação.
-                return pos; // Retorna a posição para bloquear.
+        // 2. Segunda prioridade: Se o adversário está prestes a ganhar, bloqueia.
+        for (int palavra = 0; palavra < ocupadas[0].length; palavra++) {
+            for (long bits = palavraLivre(palavra); bits != 0; bits &= bits - 1) {
+                int pos = (palavra << 6) + Long.numberOfTrailingZeros(bits);
+                if (formaLinha(ocupadas[2 - jogador], pos)) {
+                    return pos; // Retorna a posição para bloquear.
+                }
             }
-            celulas[pos] = ""; // Desfaz a simulação.
         }
         
-        // 3. Estratégia: Ocupar a posição central (4) é quase sempre uma boa jogada.
-        if (celulas[4].isEmpty()) return 4;
+        // 3. Estratégia: Ocupar a posição central (4 no 3x3) é quase sempre uma boa jogada.
+        int centro = (altura / 2) * largura + largura / 2;
+        if (!estaOcupada(centro)) return centro;
 
-        // 4. Estratégia: Ocupar um dos cantos (0, 2, 6, 8).
-        ArrayList<Integer> cantos = new ArrayList<>(Arrays.asList(0, 2, 6, 8));
-        cantos.retainAll(posicoesDisponiveis); // Pega só os cantos que estão livres.
-        if (!cantos.isEmpty()) {
-            return cantos.get(new Random().nextInt(cantos.size()));
+        // 4. Estratégia: Ocupar um dos cantos (0, 2, 6, 8 no 3x3), sorteado entre os livres.
+        int cantosLivres = 0;
+        for (int i = 0; i < 4; i++) {
+            if (!estaOcupada(canto(i))) cantosLivres++;
+        }
+        if (cantosLivres > 0) {
+            int sorteado = aleatorio.nextInt(cantosLivres);
+            for (int i = 0; i < 4; i++) {
+                if (!estaOcupada(canto(i)) && sorteado-- == 0) return canto(i);
+            }
         }
         
         // 5. Se nada acima for possível, joga em qualquer lugar livre (similar ao nível fácil).
-        return posicoesDisponiveis.get(new Random().nextInt(posicoesDisponiveis.size()));
+        return enesimaLivre(aleatorio.nextInt(getTotalCelulas() - quantidadeJogadas));
+    }
+
+    /**
+     * Retorna um dos 4 cantos do tabuleiro (0, 2, 6 e 8 no 3x3).
+     * @param indice Qual canto (0 a 3).
+     */
+    private int canto(int indice) {
+        switch (indice) {
+            case 0: return 0;
+            case 1: return largura - 1;
+            case 2: return (altura - 1) * largura;
+            default: return getTotalCelulas() - 1;
+        }
+    }
+
+    /**
+     * Retorna a n-ésima posição livre (contando de 0), sem alocar.
+     */
+    private int enesimaLivre(int n) {
+        for (int palavra = 0; palavra < ocupadas[0].length; palavra++) {
+            long bits = palavraLivre(palavra);
+            int quantidade = Long.bitCount(bits);
+            if (n < quantidade) {
+                for (; n > 0; n--) bits &= bits - 1;
+                return (palavra << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            n -= quantidade;
+        }
+        throw new IllegalStateException("Não há posição livre.");
+    }
+
+    /**
+     * Retorna os bits livres de uma palavra do tabuleiro (descartando os bits além da última célula).
+     */
+    private long palavraLivre(int palavra) {
+        long livres = ~(ocupadas[0][palavra] | ocupadas[1][palavra]);
+        int restantes = getTotalCelulas() - (palavra << 6);
+        return restantes >= 64 ? livres : livres & ((1L << restantes) - 1);
+    }
+
+    /**
+     * Verifica se a célula já pertence a algum dos jogadores.
+     * @param posicao Posição no tabuleiro.
+     * @return true se a célula está ocupada.
+     */
+    private boolean estaOcupada(int posicao) {
+        return temBit(ocupadas[0], posicao) || temBit(ocupadas[1], posicao);
+    }
+
+    /**
+     * Traduz o conteúdo de uma posição do bitboard para o símbolo exibido.
+     * @param posicao Posição no tabuleiro.
+     * @return O símbolo do jogador que ocupa a posição, ou espaço se estiver livre.
+     */
+    private String simboloDaCelula(int posicao) {
+        if (temBit(ocupadas[0], posicao)) return simbolos[0];
+        if (temBit(ocupadas[1], posicao)) return simbolos[1];
+        return " ";
+    }
+
+    /**
+     * Verifica se a posição, considerada ocupada pelo dono dos bits, completa uma linha de k.
+     * Olha só as 4 direções que passam pela posição, andando no máximo k-1 casas para cada lado.
+     * @param bits Conjunto de bits do jogador.
+     * @param posicao Posição recém-jogada (ou simulada).
+     * @return true se há k símbolos seguidos passando pela posição.
+     */
+    private boolean formaLinha(long[] bits, int posicao) {
+        int linha = posicao / largura;
+        int coluna = posicao % largura;
+        for (int[] direcao : DIRECOES) {
+            int seguidas = 1 + contarSeguidas(bits, linha, coluna, direcao[0], direcao[1])
+                             + contarSeguidas(bits, linha, coluna, -direcao[0], -direcao[1]);
+            if (seguidas >= alinhamento) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Conta quantas casas seguidas do jogador existem a partir da vizinha de (linha, coluna)
+     * na direção (dl, dc), parando na borda, numa casa que não é dele ou ao atingir k-1.
+     */
+    private int contarSeguidas(long[] bits, int linha, int coluna, int dl, int dc) {
+        int seguidas = 0;
+        int l = linha + dl, c = coluna + dc;
+        while (seguidas < alinhamento - 1 && l >= 0 && l < altura && c >= 0 && c < largura
+                && temBit(bits, l * largura + c)) {
+            seguidas++;
+            l += dl;
+            c += dc;
+        }
+        return seguidas;
+    }
+
+    /**
+     * Lê um bit do conjunto de bits de um jogador.
+     */
+    private static boolean temBit(long[] bits, int posicao) {
+        return (bits[posicao >>> 6] & (1L << posicao)) != 0;
+    }
+
+    /**
+     * Retorna a máscara de 9 bits do jogador no tabuleiro clássico, usada pelos motores 3x3.
+     * @param numeroJogador O número do jogador (1 ou 2).
+     * @return Os bits das posições ocupadas pelo jogador.
+     */
+    int getMascara(int numeroJogador) {
+        return (int) ocupadas[numeroJogador - 1][0];
+    }
+
+    /**
+     * Valida as dimensões de um tabuleiro (m,n,k).
+     */
+    static void validarDimensoes(int largura, int altura, int alinhamento) {
+        if (largura < 1 || altura < 1) {
+            throw new IllegalArgumentException("O tabuleiro deve ter pelo menos 1 linha e 1 coluna.");
+        }
+        if ((long) largura * altura > MAXIMO_CELULAS) {
+            throw new IllegalArgumentException("O tabuleiro pode ter no máximo " + MAXIMO_CELULAS + " células.");
+        }
+        if (alinhamento < 1 || alinhamento > Math.max(largura, altura)) {
+            throw new IllegalArgumentException("O alinhamento deve ser entre 1 e " + Math.max(largura, altura) + ".");
+        }
+    }
+
+    /**
+     * Indica se as dimensões são as do jogo da velha clássico (3x3, 3 em linha).
+     */
+    static boolean ehClassico(int largura, int altura, int alinhamento) {
+        return largura == TAMANHO_CLASSICO && altura == TAMANHO_CLASSICO && alinhamento == TAMANHO_CLASSICO;
     }
 
     /**
-     * Verifica todas as combinações de vitória para um determinado símbolo.
-     * @param simbolo O símbolo a ser verificado ("X" ou "O").
-     * @return true se o símbolo formou uma linha vencedora.
+     * Verifica as 8 combinações de vitória do 3x3 contra a máscara de um jogador.
+     * @param mascara Máscara de 9 bits com as posições ocupadas pelo jogador.
+     * @return true se a máscara contém uma linha vencedora completa.
      */
-    private boolean verificaVencedor(String simbolo) {
-        // Todas as 8 combinações possíveis de vitória.
-        int[][] vitorias = {{0,1,2}, {3,4,5}, {6,7,8}, {0,3,6}, {1,4,7}, {2,5,8}, {0,4,8}, {2,4,6}};
-        for (int[] condicao : vitorias) {
-            if (celulas[condicao[0]].equals(simbolo) && celulas[condicao[1]].equals(simbolo) && celulas[condicao[2]].equals(simbolo)) {
+    static boolean verificaVencedor(int mascara) {
+        for (int linha : LINHAS_VITORIA) {
+            if ((mascara & linha) == linha) {
                 return true;
             }
         }
@@ -0,0 +1,319 @@
+package projeto;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Métricas do motor: contadores de jogadas, de erros de validação e de partidas terminadas,
+ * histogramas de latência das jogadas (por nível da máquina) e nós visitados pelas buscas.
+ * Ficam desligadas por padrão e são ligadas com -Djogodavelha.metricas=true. {@link #ATIVAS} é
+ * uma constante, então com elas desligadas o JIT elimina os trechos de medição e o custo é nulo.
+ * Com elas ligadas, os contadores são LongAdder e os histogramas são listrados: um número fixo de
+ * listras (o dobro dos núcleos), cada thread medindo sempre na listra do seu id e as listras somadas
+ * só na leitura. Assim medir quase não cria disputa entre núcleos, e a memória dos histogramas não
+ * cresce com as threads que o programa cria ao longo da vida. Os valores saem por JMX
+ * (projeto:type=MetricasJogo) ou em texto por {@link #relatorio()}.
+ *
+ * Independente disso, as jogadas da máquina e os fins de partida geram eventos do JDK Flight
+ * Recorder, que só custam algo quando uma gravação está em andamento com eles habilitados.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class MetricasJogo {
+
+    // --- ATRIBUTOS --- //
+    static final boolean ATIVAS = Boolean.getBoolean("jogodavelha.metricas");
+    // Índice 0: jogadas de jogadores; 1 a 5: jogadas da máquina em cada nível.
+    private static final int NIVEIS = 6;
+
+    private static final LongAdder[] jogadas = adders(NIVEIS);
+    private static final LongAdder[] nos = adders(NIVEIS);
+    private static final LongAdder errosValidacao = new LongAdder();
+    private static final LongAdder consultasTerminou = new LongAdder();
+    // Partidas terminadas por resultado: 0 (empate), 1 ou 2 (vencedor).
+    private static final LongAdder[] partidasTerminadas = adders(3);
+
+    static {
+        if (ATIVAS) {
+            registrarJmx();
+        }
+    }
+
+    private MetricasJogo() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    /**
+     * As listras dos histogramas, criadas só na primeira medição (com as métricas desligadas, nunca).
+     * Cada listra é um histograma por nível, protegido pelo próprio array.
+     */
+    private static final class Listras {
+        static final HistogramaLatencia[][] HISTOGRAMAS = criar();
+
+        private static HistogramaLatencia[][] criar() {
+            int listras = Integer.highestOneBit(Math.max(1, 2 * Runtime.getRuntime().availableProcessors() - 1)) << 1;
+            HistogramaLatencia[][] histogramas = new HistogramaLatencia[listras][NIVEIS];
+            for (HistogramaLatencia[] listra : histogramas) {
+                for (int i = 0; i < NIVEIS; i++) {
+                    listra[i] = new HistogramaLatencia();
+                }
+            }
+            return histogramas;
+        }
+
+        /**
+         * Mede na listra da thread atual.
+         */
+        static void registrar(int nivel, long nanos) {
+            HistogramaLatencia[] listra = HISTOGRAMAS[(int) Thread.currentThread().getId() & (HISTOGRAMAS.length - 1)];
+            synchronized (listra) {
+                listra[nivel].registrar(nanos);
+            }
+        }
+    }
+
+    // --- EVENTOS DO FLIGHT RECORDER --- //
+
+    @Name("projeto.JogadaMaquina")
+    @Label("Jogada da máquina")
+    @Category("Jogo da Velha")
+    static final class EventoJogadaMaquina extends Event {
+        @Label("Nível")
+        int nivel;
+        @Label("Posição")
+        int posicao;
+        @Label("Largura")
+        int largura;
+        @Label("Altura")
+        int altura;
+        @Label("Nós visitados")
+        long nos;
+
+        /**
+         * Indica se alguma gravação em andamento habilitou o evento, sem criar um.
+         */
+        static boolean habilitado() {
+            return Tipo.TIPO.isEnabled();
+        }
+
+        // O tipo é registrado no Flight Recorder só na primeira consulta.
+        private static final class Tipo {
+            static final EventType TIPO = EventType.getEventType(EventoJogadaMaquina.class);
+        }
+    }
+
+    @Name("projeto.FimPartida")
+    @Label("Fim de partida")
+    @Category("Jogo da Velha")
+    static final class EventoFimPartida extends Event {
+        @Label("Resultado")
+        int resultado;
+        @Label("Jogadas")
+        int jogadas;
+        @Label("Largura")
+        int largura;
+        @Label("Altura")
+        int altura;
+        @Label("Nível da máquina")
+        int nivel;
+    }
+
+    // --- REGISTRO (chamado pelo JogoDaVelha) --- //
+
+    /**
+     * Registra uma jogada de jogador que passou na validação.
+     * @param nanos Quanto ela levou.
+     */
+    static void jogadaJogador(long nanos) {
+        jogadas[0].increment();
+        Listras.registrar(0, nanos);
+    }
+
+    /**
+     * Registra uma jogada da máquina.
+     * @param nivel O nível da máquina (1 a 5).
+     * @param nanos Quanto a escolha e a jogada levaram.
+     * @param nosVisitados Nós (nível 4) ou simulações (nível 5) da busca; 0 nos demais.
+     */
+    static void jogadaMaquina(int nivel, long nanos, long nosVisitados) {
+        jogadas[nivel].increment();
+        nos[nivel].add(nosVisitados);
+        Listras.registrar(nivel, nanos);
+    }
+
+    static void consultaTerminou() {
+        consultasTerminou.increment();
+    }
+
+    /**
+     * Conta uma jogada rejeitada pela validação. Devolve a própria exceção, para o uso
+     * "throw MetricasJogo.erro(new ...)" no ponto do lançamento.
+     */
+    static <E extends RuntimeException> E erro(E excecao) {
+        if (ATIVAS) {
+            errosValidacao.increment();
+        }
+        return excecao;
+    }
+
+    /**
+     * Registra o fim de uma partida (conta e gera o evento do Flight Recorder).
+     */
+    static void partidaTerminada(JogoDaVelha jogo) {
+        if (ATIVAS) {
+            partidasTerminadas[jogo.getResultado()].increment();
+        }
+        EventoFimPartida evento = new EventoFimPartida();
+        if (evento.shouldCommit()) {
+            evento.resultado = jogo.getResultado();
+            evento.jogadas = jogo.getQuantidadeJogadas();
+            evento.largura = jogo.getLargura();
+            evento.altura = jogo.getAltura();
+            evento.nivel = jogo.getNivelMaquina();
+            evento.commit();
+        }
+    }
+
+    // --- LEITURA --- //
+
+    static long getJogadasJogador() {
+        return jogadas[0].sum();
+    }
+
+    static long getJogadasMaquina() {
+        long total = 0;
+        for (int nivel = 1; nivel < NIVEIS; nivel++) {
+            total += jogadas[nivel].sum();
+        }
+        return total;
+    }
+
+    static long getNosVisitados() {
+        long total = 0;
+        for (LongAdder contador : nos) {
+            total += contador.sum();
+        }
+        return total;
+    }
+
+    static long getErrosValidacao() {
+        return errosValidacao.sum();
+    }
+
+    static long getConsultasTerminou() {
+        return consultasTerminou.sum();
+    }
+
+    static long getPartidasTerminadas() {
+        return partidasTerminadas[0].sum() + partidasTerminadas[1].sum() + partidasTerminadas[2].sum();
+    }
+
+    /**
+     * Soma as listras dos histogramas para um nível. As threads continuam medindo enquanto
+     * isso, então a soma pode deixar de fora as medições feitas durante a leitura.
+     * @param nivel 0 para as jogadas de jogadores, 1 a 5 para a máquina.
+     */
+    static HistogramaLatencia latencias(int nivel) {
+        HistogramaLatencia soma = new HistogramaLatencia();
+        if (!ATIVAS) {
+            return soma;
+        }
+        for (HistogramaLatencia[] listra : Listras.HISTOGRAMAS) {
+            synchronized (listra) {
+                soma.somar(listra[nivel]);
+            }
+        }
+        return soma;
+    }
+
+    /**
+     * Descreve todas as métricas em texto, uma por linha.
+     */
+    static String relatorio() {
+        StringBuilder texto = new StringBuilder(512);
+        if (!ATIVAS) {
+            texto.append("métricas desligadas (use -Djogodavelha.metricas=true)\n");
+        }
+        texto.append("jogadas jogador=").append(getJogadasJogador())
+             .append(" maquina=").append(getJogadasMaquina())
+             .append(" errosValidacao=").append(getErrosValidacao())
+             .append(" consultasTerminou=").append(getConsultasTerminou()).append('\n');
+        texto.append("partidas empates=").append(partidasTerminadas[0].sum())
+             .append(" vitorias1=").append(partidasTerminadas[1].sum())
+             .append(" vitorias2=").append(partidasTerminadas[2].sum()).append('\n');
+        for (int nivel = 0; nivel < NIVEIS; nivel++) {
+            HistogramaLatencia latencias = latencias(nivel);
+            if (latencias.getTotal() == 0) continue;
+            texto.append(nivel == 0 ? "jogador" : "nivel " + nivel)
+                 .append(" n=").append(latencias.getTotal())
+                 .append(" nos=").append(nos[nivel].sum())
+                 .append(' ').append(latencias.resumo()).append('\n');
+        }
+        return texto.toString();
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    private static LongAdder[] adders(int quantidade) {
+        LongAdder[] contadores = new LongAdder[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            contadores[i] = new LongAdder();
+        }
+        return contadores;
+    }
+
+    private static void registrarJmx() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Jmx(), new ObjectName("projeto:type=MetricasJogo"));
+        } catch (JMException e) {
+            System.err.println("Não foi possível publicar as métricas por JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A visão JMX das métricas.
+     */
+    private static final class Jmx implements MetricasJogoMXBean {
+        @Override
+        public long getJogadasJogador() {
+            return MetricasJogo.getJogadasJogador();
+        }
+
+        @Override
+        public long getJogadasMaquina() {
+            return MetricasJogo.getJogadasMaquina();
+        }
+
+        @Override
+        public long getNosVisitados() {
+            return MetricasJogo.getNosVisitados();
+        }
+
+        @Override
+        public long getErrosValidacao() {
+            return MetricasJogo.getErrosValidacao();
+        }
+
+        @Override
+        public long getConsultasTerminou() {
+            return MetricasJogo.getConsultasTerminou();
+        }
+
+        @Override
+        public long getPartidasTerminadas() {
+            return MetricasJogo.getPartidasTerminadas();
+        }
+
+        @Override
+        public String getRelatorio() {
+            return MetricasJogo.relatorio();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package projeto;
+
+/**
+ * Interface JMX das métricas do motor (ver {@link MetricasJogo}), publicada como
+ * projeto:type=MetricasJogo quando as métricas estão ligadas.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public interface MetricasJogoMXBean {
+
+    long getJogadasJogador();
+
+    long getJogadasMaquina();
+
+    long getNosVisitados();
+
+    long getErrosValidacao();
+
+    long getConsultasTerminou();
+
+    long getPartidasTerminadas();
+
+    /**
+     * As métricas em texto, com os percentis de latência por nível.
+     */
+    String getRelatorio();
+}
@@ -0,0 +1,120 @@
+package projeto;
+
+import java.util.Arrays;
+
+/**
+ * Motor de jogo perfeito para o tabuleiro clássico 3x3 (nível 3 da máquina).
+ * Resolve o jogo inteiro com negamax e guarda cada resultado numa tabela de transposição
+ * indexada pela posição canônica (veja {@link Simetrias}). Assim as ~5.478 posições legais
+ * caem para 765 entradas.
+ * A tabela é montada uma única vez, na carga da classe; depois disso cada consulta é O(1).
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class MotorPerfeito {
+
+    // --- ATRIBUTOS --- //
+    // Marca de "posição ainda não resolvida" na tabela de valores.
+    private static final byte DESCONHECIDO = Byte.MIN_VALUE;
+    // Tabela de transposição: chave = daVez | (oponente << 9), sempre na forma canônica.
+    // Valor do ponto de vista de quem joga: > 0 vitória, < 0 derrota, 0 empate.
+    // Vitórias mais rápidas valem mais (o valor é 1 + casas vazias restantes).
+    private static final byte[] VALORES = new byte[1 << 18];
+    // Melhor jogada de cada posição canônica, nas coordenadas da própria posição canônica.
+    private static final byte[] JOGADAS = new byte[1 << 18];
+    // Quantas posições canônicas diferentes foram resolvidas (765 no jogo da velha).
+    private static int posicoesResolvidas;
+
+    static {
+        Arrays.fill(VALORES, DESCONHECIDO);
+        resolver(0, 0); // Resolve o jogo inteiro a partir do tabuleiro vazio.
+    }
+
+    private MotorPerfeito() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    // --- MÉTODOS DE CONSULTA --- //
+
+    /**
+     * Retorna a melhor jogada para quem está na vez.
+     * @param daVez Máscara do jogador que vai jogar.
+     * @param oponente Máscara do adversário.
+     * @return A posição (0-8) da jogada perfeita.
+     */
+    static int melhorJogada(int daVez, int oponente) {
+        int canonica = Simetrias.canonizar(daVez, oponente);
+        // Leva a jogada de volta das coordenadas canônicas para as do tabuleiro real.
+        return Simetrias.posicaoOriginal(canonica, JOGADAS[canonica & 0x3FFFF]);
+    }
+
+    /**
+     * Retorna o valor teórico da posição para quem está na vez.
+     * @param daVez Máscara do jogador que vai jogar.
+     * @param oponente Máscara do adversário.
+     * @return Valor positivo se quem joga vence, negativo se perde, 0 se empata.
+     */
+    static int valor(int daVez, int oponente) {
+        return VALORES[Simetrias.canonizar(daVez, oponente) & 0x3FFFF];
+    }
+
+    /**
+     * Indica se a posição (na sua forma canônica) está na tabela, isto é, se é alcançável.
+     * @param daVez Máscara do jogador que vai jogar.
+     * @param oponente Máscara do adversário.
+     * @return true se a tabela tem valor e jogada para a posição.
+     */
+    static boolean resolvida(int daVez, int oponente) {
+        return VALORES[Simetrias.canonizar(daVez, oponente) & 0x3FFFF] != DESCONHECIDO;
+    }
+
+    /**
+     * Retorna quantas posições canônicas existem na tabela de transposição.
+     * @return O número de entradas resolvidas.
+     */
+    static int getPosicoesResolvidas() {
+        return posicoesResolvidas;
+    }
+
+    // --- MÉTODOS PRIVADOS (CONSTRUÇÃO DA TABELA) --- //
+
+    /**
+     * Negamax com memorização na tabela de transposição.
+     * Não usamos poda alfa-beta: a tabela precisa do valor exato de toda posição alcançável,
+     * e com a memorização a árvore inteira tem só 765 nós distintos.
+     * @return O valor da posição para quem está na vez.
+     */
+    private static int resolver(int daVez, int oponente) {
+        int chave = Simetrias.canonizar(daVez, oponente) & 0x3FFFF;
+        if (VALORES[chave] != DESCONHECIDO) {
+            return VALORES[chave];
+        }
+        // Trabalha sempre sobre a forma canônica, para que a jogada guardada esteja nas coordenadas dela.
+        int cDaVez = chave & 0x1FF;
+        int cOponente = chave >>> 9;
+        int livres = ~(cDaVez | cOponente) & 0x1FF;
+        int vazias = Integer.bitCount(livres);
+
+        int melhorValor;
+        int melhorJogada = -1;
+        if (JogoDaVelha.verificaVencedor(cOponente)) {
+            melhorValor = -(vazias + 1); // O adversário acabou de vencer.
+        } else if (livres == 0) {
+            melhorValor = 0; // Tabuleiro cheio sem vencedor: empate.
+        } else {
+            melhorValor = Integer.MIN_VALUE;
+            for (int pos = 0; pos < 9; pos++) {
+                if ((livres & (1 << pos)) == 0) continue;
+                int valor = -resolver(cOponente, cDaVez | (1 << pos));
+                if (valor > melhorValor) {
+                    melhorValor = valor;
+                    melhorJogada = pos;
+                }
+            }
+        }
+        JOGADAS[chave] = (byte) melhorJogada;
+        VALORES[chave] = (byte) melhorValor;
+        posicoesResolvidas++;
+        return melhorValor;
+    }
+}
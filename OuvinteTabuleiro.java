@@ -0,0 +1,21 @@
+package projeto;
+
+/**
+ * Recebe os avisos de mudança no tabuleiro de um {@link JogoDaVelha}.
+ * Serve para quem exibe o tabuleiro (a tela, um espectador) redesenhar só as células que mudaram,
+ * em vez de reler o tabuleiro inteiro a cada jogada.
+ * O aviso chega na mesma thread que fez a jogada, logo depois de ela ser aplicada.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+@FunctionalInterface
+public interface OuvinteTabuleiro {
+
+    /**
+     * Chamado quando o conteúdo de uma célula muda.
+     * @param jogo O jogo em que a mudança aconteceu.
+     * @param posicao A posição da célula.
+     * @param dono O novo dono da célula: 1 ou 2, ou 0 se ela ficou livre.
+     */
+    void celulaAlterada(JogoDaVelha jogo, int posicao, int dono);
+}
@@ -0,0 +1,39 @@
+package projeto;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pools de threads das buscas da máquina (níveis 4 e 5), um por número de threads, criados na
+ * primeira vez e compartilhados por todas as partidas e motores. Assim, criar partidas (ou motores)
+ * não cria threads: uma partida descartada não deixa nada para trás, e as threads de um pool
+ * ocioso (daemon) terminam sozinhas depois de um tempo sem trabalho.
+ * Só servem às buscas com mais de 1 thread: as de 1 rodam na thread de quem pede a jogada, senão
+ * todas as buscas "de 1 thread" de um torneio ou lote disputariam o único trabalhador do mesmo pool.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class PoolsBusca {
+
+    // --- ATRIBUTOS --- //
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private PoolsBusca() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    /**
+     * Retorna o pool compartilhado com o número de threads indicado.
+     * @param threads Quantas threads de trabalho (mais de 1).
+     * @return O pool, que não deve ser desligado por quem o usa.
+     */
+    static ForkJoinPool comThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A busca precisa de pelo menos 1 thread.");
+        }
+        if (threads == 1) {
+            throw new IllegalArgumentException("Buscas com 1 thread rodam na thread de quem pede a jogada, sem pool.");
+        }
+        return POOLS.computeIfAbsent(threads, ForkJoinPool::new);
+    }
+}
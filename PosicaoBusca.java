@@ -0,0 +1,164 @@
+package projeto;
+
+import java.util.Arrays;
+
+/**
+ * Cópia de trabalho do tabuleiro usada pelos motores de busca: cada thread tem a sua.
+ * Guarda o dono de cada célula e o hash de Zobrist, atualizado a cada jogada.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class PosicaoBusca {
+
+    // --- ATRIBUTOS --- //
+    // Pontuação de uma janela de k casas com n símbolos de um só jogador (índice = n).
+    private static final int[] PESOS = {0, 1, 8, 64, 512, 4096, 32768};
+
+    final int largura, altura, alinhamento, total;
+    final long[] chaves;
+    final byte[] celulas;
+    long hash;
+    int jogadas;
+
+    PosicaoBusca(JogoDaVelha jogo) {
+        this.largura = jogo.getLargura();
+        this.altura = jogo.getAltura();
+        this.alinhamento = jogo.getAlinhamento();
+        this.total = largura * altura;
+        this.chaves = Zobrist.chaves(total);
+        this.celulas = new byte[total];
+        for (int i = 0; i < total; i++) {
+            int dono = jogo.getDonoCelula(i);
+            if (dono != 0) {
+                celulas[i] = (byte) dono;
+                hash ^= chaves[2 * i + dono - 1];
+                jogadas++;
+            }
+        }
+    }
+
+    private PosicaoBusca(PosicaoBusca outra) {
+        this.largura = outra.largura;
+        this.altura = outra.altura;
+        this.alinhamento = outra.alinhamento;
+        this.total = outra.total;
+        this.chaves = outra.chaves;
+        this.celulas = outra.celulas.clone();
+        this.hash = outra.hash;
+        this.jogadas = outra.jogadas;
+    }
+
+    PosicaoBusca copiar() {
+        return new PosicaoBusca(this);
+    }
+
+    /**
+     * Sobrescreve esta posição com o conteúdo de outra do mesmo tamanho, sem alocar nada.
+     * @param outra A posição a ser copiada.
+     */
+    void copiarDe(PosicaoBusca outra) {
+        System.arraycopy(outra.celulas, 0, celulas, 0, total);
+        this.hash = outra.hash;
+        this.jogadas = outra.jogadas;
+    }
+
+    /**
+     * Marca a célula para o jogador e diz se a jogada venceu (olhando só as 4 direções dela).
+     */
+    boolean jogar(int posicao, int jogador) {
+        celulas[posicao] = (byte) jogador;
+        hash ^= chaves[2 * posicao + jogador - 1];
+        jogadas++;
+        int linha = posicao / largura, coluna = posicao % largura;
+        return seguidas(linha, coluna, 0, 1, jogador) >= alinhamento
+            || seguidas(linha, coluna, 1, 0, jogador) >= alinhamento
+            || seguidas(linha, coluna, 1, 1, jogador) >= alinhamento
+            || seguidas(linha, coluna, 1, -1, jogador) >= alinhamento;
+    }
+
+    void desfazer(int posicao, int jogador) {
+        celulas[posicao] = 0;
+        hash ^= chaves[2 * posicao + jogador - 1];
+        jogadas--;
+    }
+
+    private int seguidas(int linha, int coluna, int dl, int dc, int jogador) {
+        int total = 1;
+        for (int sentido = -1; sentido <= 1; sentido += 2) {
+            int l = linha + sentido * dl, c = coluna + sentido * dc;
+            while (l >= 0 && l < altura && c >= 0 && c < largura && celulas[l * largura + c] == jogador) {
+                total++;
+                l += sentido * dl;
+                c += sentido * dc;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gera as jogadas candidatas. Em tabuleiros pequenos, todas as casas livres; nos grandes,
+     * só as casas vizinhas de alguma peça (ou o centro, se o tabuleiro estiver vazio).
+     */
+    int[] gerarJogadas() {
+        boolean todas = total <= 25;
+        if (jogadas == 0 && !todas) {
+            return new int[]{(altura / 2) * largura + largura / 2};
+        }
+        int[] candidatas = new int[total - jogadas];
+        int n = 0;
+        for (int pos = 0; pos < total; pos++) {
+            if (celulas[pos] == 0 && (todas || temVizinha(pos))) {
+                candidatas[n++] = pos;
+            }
+        }
+        return n == candidatas.length ? candidatas : Arrays.copyOf(candidatas, n);
+    }
+
+    private boolean temVizinha(int posicao) {
+        int linha = posicao / largura, coluna = posicao % largura;
+        for (int l = Math.max(0, linha - 1); l <= Math.min(altura - 1, linha + 1); l++) {
+            for (int c = Math.max(0, coluna - 1); c <= Math.min(largura - 1, coluna + 1); c++) {
+                if (celulas[l * largura + c] != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Avaliação estática: soma os pesos de todas as janelas de k casas em que só um jogador tem peças.
+     * As janelas são percorridas deslizando ao longo de cada linha, coluna e diagonal.
+     * @return A pontuação do ponto de vista do jogador indicado.
+     */
+    int avaliar(int jogador) {
+        int pontos = 0;
+        pontos += avaliarDirecao(0, 1);
+        pontos += avaliarDirecao(1, 0);
+        pontos += avaliarDirecao(1, 1);
+        pontos += avaliarDirecao(1, -1);
+        return jogador == 1 ? pontos : -pontos;
+    }
+
+    private int avaliarDirecao(int dl, int dc) {
+        int pontos = 0;
+        for (int inicio = 0; inicio < total; inicio++) {
+            int l0 = inicio / largura, c0 = inicio % largura;
+            // Só começa nas casas em que a linha "entra" no tabuleiro.
+            int lp = l0 - dl, cp = c0 - dc;
+            if (lp >= 0 && lp < altura && cp >= 0 && cp < largura) continue;
+            int pecas1 = 0, pecas2 = 0, tamanho = 0;
+            for (int l = l0, c = c0; l >= 0 && l < altura && c >= 0 && c < largura; l += dl, c += dc) {
+                int entra = celulas[l * largura + c];
+                if (entra == 1) pecas1++; else if (entra == 2) pecas2++;
+                if (++tamanho > alinhamento) {
+                    int sai = celulas[(l - alinhamento * dl) * largura + (c - alinhamento * dc)];
+                    if (sai == 1) pecas1--; else if (sai == 2) pecas2--;
+                }
+                if (tamanho >= alinhamento) {
+                    if (pecas2 == 0) pontos += PESOS[Math.min(pecas1, PESOS.length - 1)];
+                    else if (pecas1 == 0) pontos -= PESOS[Math.min(pecas2, PESOS.length - 1)];
+                }
+            }
+        }
+        return pontos;
+    }
+}
@@ -0,0 +1,292 @@
+package projeto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Front-end de texto no estilo UCI, para scripts e programas externos conversarem com o motor
+ * por entrada e saída padrão (pipes), sem a interface gráfica: nada de AWT/Swing é carregado,
+ * então o processo sobe em milissegundos.
+ * As respostas ficam num buffer e só são descarregadas quando não há mais comandos esperando na
+ * entrada, então um lote de milhares de posições vira poucas escritas no pipe.
+ *
+ * Comandos, um por linha (as posições são os índices das células, de 0 a largura * altura - 1):
+ *   uci                                        ->  id name ..., id author ..., option ..., uciok
+ *   isready                                    ->  readyok
+ *   newgame [largura altura alinhamento]       ->  (nada) nova partida; sem dimensões, 3x3 com 3 em linha
+ *   ucinewgame                                 ->  (nada) nova partida com as dimensões atuais
+ *   position [startpos] [moves p1 p2 ...]      ->  (nada) posição a partir do início com as jogadas dadas
+ *   go [movetime ms] [nivel n]                 ->  bestmove p (ou "bestmove (none)" com a partida encerrada)
+ *   setoption name nivel|threads|semente value v
+ *   d                                          ->  o tabuleiro, a vez e o resultado
+ *   metricas                                   ->  info string ..., uma linha por métrica (ver MetricasJogo)
+ *   quit
+ * Erros são respondidos com "info string erro: mensagem", como no UCI, e o comando é ignorado.
+ *
+ * Uso: java projeto.ProtocoloTexto
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public class ProtocoloTexto {
+
+    // --- ATRIBUTOS --- //
+    private final BufferedReader entrada;
+    private final Writer saida;
+    // Dimensões da partida atual.
+    private int largura = JogoDaVelha.TAMANHO_CLASSICO;
+    private int altura = JogoDaVelha.TAMANHO_CLASSICO;
+    private int alinhamento = JogoDaVelha.TAMANHO_CLASSICO;
+    private JogoDaVelha jogo;
+    // Opções: nível usado pelo "go" sem "nivel" (0 = o mais forte disponível), threads dos níveis 4 e 5
+    // e semente dos sorteios (null = aleatória).
+    private int nivel;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Long semente;
+    // Orçamento do "go" sem "movetime".
+    private static final long ORCAMENTO_PADRAO_MS = 1000;
+    // Motores dos níveis 4 e 5, os mesmos para todas as partidas: programas externos mandam
+    // milhares de "ucinewgame", e cada partida com motores próprios alocaria outra tabela de busca.
+    private final BuscaParalela busca = new BuscaParalela(threads, ORCAMENTO_PADRAO_MS);
+    private final BuscaMonteCarlo monteCarlo = new BuscaMonteCarlo(threads, 0, ORCAMENTO_PADRAO_MS);
+
+    /**
+     * Cria o front-end sobre a entrada e a saída indicadas.
+     * @param entrada De onde os comandos são lidos.
+     * @param saida Para onde as respostas são escritas.
+     */
+    public ProtocoloTexto(BufferedReader entrada, Writer saida) {
+        this.entrada = entrada;
+        this.saida = saida;
+        novaPartida();
+    }
+
+    /**
+     * Ponto de entrada: atende a entrada padrão até "quit" ou o fim da entrada.
+     */
+    public static void main(String[] args) throws IOException {
+        // Direto nos descritores, sem o PrintStream de System.out (que descarrega a cada linha).
+        BufferedReader entrada = new BufferedReader(new InputStreamReader(new FileInputStream(FileDescriptor.in), StandardCharsets.UTF_8), 1 << 16);
+        Writer saida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+        new ProtocoloTexto(entrada, saida).atender();
+    }
+
+    // --- MÉTODOS --- //
+
+    /**
+     * Lê e executa comandos até "quit" ou o fim da entrada.
+     * @throws IOException Se a leitura ou a escrita falhar.
+     */
+    public void atender() throws IOException {
+        try {
+            for (String linha; (linha = entrada.readLine()) != null; ) {
+                if (!executar(linha)) {
+                    break;
+                }
+                if (!entrada.ready()) {
+                    saida.flush(); // Ninguém mais na fila: é hora de o outro lado ver as respostas.
+                }
+            }
+        } finally {
+            saida.flush();
+        }
+    }
+
+    /**
+     * Executa um comando.
+     * @param linha A linha do comando.
+     * @return false se o comando foi "quit".
+     * @throws IOException Se a escrita falhar.
+     */
+    boolean executar(String linha) throws IOException {
+        String[] partes = linha.trim().split("\\s+");
+        try {
+            switch (partes[0]) {
+                case "":
+                    break;
+                case "uci":
+                    responder("id name JogoDaVelha");
+                    responder("id author Felipe Antonio Ramalho Macedo e Francisco Viana Maia Neto");
+                    responder("option name nivel type spin default 0 min 0 max 5");
+                    responder("option name threads type spin default " + threads + " min 1 max 1024");
+                    responder("option name semente type string default <empty>");
+                    responder("uciok");
+                    break;
+                case "isready":
+                    responder("readyok");
+                    break;
+                case "newgame":
+                    definirDimensoes(partes);
+                    novaPartida();
+                    break;
+                case "ucinewgame":
+                    novaPartida();
+                    break;
+                case "position":
+                    posicionar(partes);
+                    break;
+                case "go":
+                    responder("bestmove " + buscar(partes));
+                    break;
+                case "setoption":
+                    definirOpcao(partes);
+                    break;
+                case "d":
+                    responder(jogo.getFoto());
+                    responder("vez " + (jogo.terminou() ? 0 : jogo.getJogadorAtual()) + " resultado " + jogo.getResultado());
+                    break;
+                case "metricas":
+                    for (String metrica : MetricasJogo.relatorio().split("\n")) {
+                        responder("info string " + metrica);
+                    }
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    throw new IllegalArgumentException("comando desconhecido: " + partes[0]);
+            }
+        } catch (NumberFormatException e) {
+            responder("info string erro: número inválido: " + e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            responder("info string erro: " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void definirDimensoes(String[] partes) {
+        if (partes.length == 1) {
+            largura = altura = alinhamento = JogoDaVelha.TAMANHO_CLASSICO;
+        } else if (partes.length == 4) {
+            int novaLargura = Integer.parseInt(partes[1]);
+            int novaAltura = Integer.parseInt(partes[2]);
+            int novoAlinhamento = Integer.parseInt(partes[3]);
+            new JogoDaVelha("X", "O", novaLargura, novaAltura, novoAlinhamento); // Valida as dimensões antes de trocar.
+            largura = novaLargura;
+            altura = novaAltura;
+            alinhamento = novoAlinhamento;
+        } else {
+            throw new IllegalArgumentException("uso: newgame [largura altura alinhamento]");
+        }
+    }
+
+    private void novaPartida() {
+        jogo = new JogoDaVelha("X", "O", largura, altura, alinhamento);
+        if (semente != null) {
+            jogo.definirSemente(semente);
+        }
+        jogo.usarMotores(busca, monteCarlo);
+    }
+
+    /**
+     * Leva a partida à posição pedida. Como os programas externos costumam mandar a mesma
+     * partida com uma jogada a mais a cada vez, só a diferença é aplicada: volta (com desfazer,
+     * que é O(1)) até o maior prefixo em comum com a partida atual e joga dali em diante.
+     */
+    private void posicionar(String[] partes) {
+        int inicio = 1;
+        if (inicio < partes.length && partes[inicio].equals("startpos")) {
+            inicio++;
+        }
+        int quantidade = 0;
+        if (inicio < partes.length) {
+            if (!partes[inicio].equals("moves")) {
+                throw new IllegalArgumentException("uso: position [startpos] [moves p1 p2 ...]");
+            }
+            inicio++;
+            quantidade = partes.length - inicio;
+        }
+        int[] jogadas = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            jogadas[i] = Integer.parseInt(partes[inicio + i]);
+        }
+        RegistroJogadas atual = jogo.getRegistro();
+        int comum = 0;
+        while (comum < atual.tamanho() && comum < quantidade && atual.posicao(comum) == jogadas[comum]) {
+            comum++;
+        }
+        while (jogo.getQuantidadeJogadas() > comum) {
+            jogo.desfazer();
+        }
+        try {
+            for (int i = comum; i < quantidade; i++) {
+                jogo.jogaJogador(jogo.getJogadorAtual(), jogadas[i]);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            novaPartida(); // Não deixa a partida pela metade de uma posição inválida.
+            throw new IllegalArgumentException(e.getMessage() + " A posição foi descartada.", e);
+        }
+    }
+
+    /**
+     * Escolhe a jogada do jogador da vez, sem jogá-la.
+     * @return A posição escolhida, ou "(none)" se a partida já terminou.
+     */
+    private String buscar(String[] partes) {
+        long orcamentoMs = ORCAMENTO_PADRAO_MS;
+        int nivelBusca = nivel;
+        for (int i = 1; i < partes.length; i++) {
+            if (partes[i].equals("movetime") && i + 1 < partes.length) {
+                orcamentoMs = Long.parseLong(partes[++i]);
+            } else if (partes[i].equals("nivel") && i + 1 < partes.length) {
+                nivelBusca = Integer.parseInt(partes[++i]);
+            } else {
+                throw new IllegalArgumentException("uso: go [movetime ms] [nivel n]");
+            }
+        }
+        if (jogo.terminou()) {
+            return "(none)";
+        }
+        if (nivelBusca == 0) {
+            // O mais forte disponível: a tabela perfeita no 3x3, a busca paralela nos demais.
+            nivelBusca = JogoDaVelha.ehClassico(largura, altura, alinhamento) ? 3 : 4;
+        }
+        if (nivelBusca == 4 || nivelBusca == 5) {
+            // Só troca as opções dos motores compartilhados; a tabela da busca é mantida.
+            jogo.configurarBusca(threads, orcamentoMs);
+            jogo.configurarMonteCarlo(threads, 0, orcamentoMs);
+        }
+        return Integer.toString(jogo.escolherJogada(nivelBusca));
+    }
+
+    private void definirOpcao(String[] partes) {
+        if (partes.length != 5 || !partes[1].equals("name") || !partes[3].equals("value")) {
+            throw new IllegalArgumentException("uso: setoption name nivel|threads|semente value v");
+        }
+        switch (partes[2]) {
+            case "nivel": {
+                int novo = Integer.parseInt(partes[4]);
+                if (novo < 0 || novo > 5) {
+                    throw new IllegalArgumentException("o nível deve ser entre 0 (automático) e 5.");
+                }
+                nivel = novo;
+                break;
+            }
+            case "threads": {
+                int novo = Integer.parseInt(partes[4]);
+                if (novo < 1) {
+                    throw new IllegalArgumentException("a busca precisa de pelo menos 1 thread.");
+                }
+                threads = novo; // Vale a partir do próximo "go".
+                break;
+            }
+            case "semente":
+                semente = partes[4].equals("<empty>") ? null : Long.valueOf(partes[4]);
+                jogo.definirSemente(semente != null ? semente : System.nanoTime());
+                break;
+            default:
+                throw new IllegalArgumentException("opção desconhecida: " + partes[2]);
+        }
+    }
+
+    private void responder(String resposta) throws IOException {
+        saida.write(resposta);
+        saida.write('\n');
+    }
+}
@@ -0,0 +1,172 @@
+package projeto;
+
+import java.util.Arrays;
+
+/**
+ * Visão somente leitura da sequência de jogadas de uma partida, guardada de forma compacta.
+ * Em tabuleiros de até 16 células (como o 3x3) cada jogada ocupa 4 bits de um único long;
+ * nos maiores, 1 byte por jogada (até 256 células) ou 2 bytes (até 65.536 células).
+ * A visão não copia nada: ela aponta para o registro do próprio jogo e enxerga as jogadas
+ * feitas até o momento em que foi obtida. O acesso a qualquer lance é O(1).
+ * O jogador 1 sempre começa, então o lance i (contando de 0) é do jogador i % 2 + 1.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public final class RegistroJogadas {
+
+    // --- ATRIBUTOS --- //
+    // Maior tabuleiro cujo registro cabe num long (16 jogadas de 4 bits).
+    static final int MAXIMO_CELULAS_COMPACTO = 16;
+
+    private final long compacto;
+    private final byte[] bytes;
+    private final int bytesPorJogada;
+    private final int tamanho;
+
+    private RegistroJogadas(long compacto, byte[] bytes, int bytesPorJogada, int tamanho) {
+        this.compacto = compacto;
+        this.bytes = bytes;
+        this.bytesPorJogada = bytesPorJogada;
+        this.tamanho = tamanho;
+    }
+
+    /**
+     * Cria a visão de um registro compacto (4 bits por jogada num long).
+     * @param compacto As jogadas, a primeira nos 4 bits mais baixos.
+     * @param tamanho Quantas jogadas o registro contém (até 16).
+     */
+    static RegistroJogadas deCompacto(long compacto, int tamanho) {
+        if (tamanho < 0 || tamanho > 16) {
+            throw new IllegalArgumentException("Um registro compacto tem entre 0 e 16 jogadas.");
+        }
+        return new RegistroJogadas(compacto, null, 0, tamanho);
+    }
+
+    /**
+     * Cria a visão de um registro em bytes, sem copiar o array.
+     * @param bytes As jogadas, cada uma em 1 ou 2 bytes (big-endian).
+     * @param bytesPorJogada 1 ou 2.
+     * @param tamanho Quantas jogadas do array pertencem ao registro.
+     */
+    static RegistroJogadas deBytes(byte[] bytes, int bytesPorJogada, int tamanho) {
+        if (bytesPorJogada != 1 && bytesPorJogada != 2) {
+            throw new IllegalArgumentException("Cada jogada ocupa 1 ou 2 bytes.");
+        }
+        if (tamanho < 0 || tamanho * bytesPorJogada > bytes.length) {
+            throw new IllegalArgumentException("Tamanho do registro incompatível com o array.");
+        }
+        return new RegistroJogadas(0L, bytes, bytesPorJogada, tamanho);
+    }
+
+    // --- MÉTODOS PÚBLICOS --- //
+
+    /**
+     * Retorna quantas jogadas o registro contém.
+     * @return O número de lances.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Retorna a posição jogada num lance, em tempo constante.
+     * @param lance O número do lance (0 é a primeira jogada).
+     * @return A posição no tabuleiro.
+     */
+    public int posicao(int lance) {
+        if (lance < 0 || lance >= tamanho) {
+            throw new IndexOutOfBoundsException("Lance " + lance + " fora do registro (tamanho " + tamanho + ").");
+        }
+        if (bytes == null) {
+            return (int) (compacto >>> (4 * lance)) & 0xF;
+        }
+        if (bytesPorJogada == 1) {
+            return bytes[lance] & 0xFF;
+        }
+        return ((bytes[2 * lance] & 0xFF) << 8) | (bytes[2 * lance + 1] & 0xFF);
+    }
+
+    /**
+     * Retorna o jogador que fez um lance.
+     * @param lance O número do lance (0 é a primeira jogada).
+     * @return 1 ou 2.
+     */
+    public int jogador(int lance) {
+        if (lance < 0 || lance >= tamanho) {
+            throw new IndexOutOfBoundsException("Lance " + lance + " fora do registro (tamanho " + tamanho + ").");
+        }
+        return lance % 2 + 1;
+    }
+
+    /**
+     * Retorna a visão das primeiras jogadas do registro, para rever a partida até um lance.
+     * Não copia nada: a nova visão compartilha o mesmo armazenamento.
+     * @param quantidade Quantas jogadas a visão deve conter (0 até tamanho()).
+     * @return A visão truncada.
+     */
+    public RegistroJogadas ate(int quantidade) {
+        if (quantidade < 0 || quantidade > tamanho) {
+            throw new IndexOutOfBoundsException("Quantidade " + quantidade + " fora do registro (tamanho " + tamanho + ").");
+        }
+        if (bytes == null) {
+            long mascara = quantidade == 16 ? -1L : (1L << (4 * quantidade)) - 1;
+            return new RegistroJogadas(compacto & mascara, null, 0, quantidade);
+        }
+        return new RegistroJogadas(0L, bytes, bytesPorJogada, quantidade);
+    }
+
+    /**
+     * Retorna um registro independente do jogo, para guardar depois que a partida acaba.
+     * O formato compacto já é um valor e é devolvido como está; no formato em bytes, copia só
+     * os bytes das jogadas feitas (e não o tabuleiro inteiro).
+     * @return Um registro com as mesmas jogadas, que não enxerga mais o jogo de origem.
+     */
+    public RegistroJogadas enxuto() {
+        if (bytes == null || bytes.length == tamanho * bytesPorJogada) {
+            return this;
+        }
+        return new RegistroJogadas(0L, Arrays.copyOf(bytes, tamanho * bytesPorJogada), bytesPorJogada, tamanho);
+    }
+
+    /**
+     * Indica se o registro está no formato compacto de um único long.
+     * @return true para tabuleiros de até 16 células.
+     */
+    public boolean isCompacto() {
+        return bytes == null;
+    }
+
+    /**
+     * Retorna o registro compacto (4 bits por jogada, a primeira nos bits mais baixos).
+     * @return O long com as jogadas.
+     */
+    public long getCompacto() {
+        if (bytes != null) {
+            throw new IllegalStateException("O registro deste tabuleiro não cabe num long.");
+        }
+        return compacto;
+    }
+
+    // --- MÉTODOS DE APOIO AO JOGO --- //
+
+    /**
+     * Quantos bytes cada jogada ocupa num tabuleiro com o número de células indicado.
+     * @return 0 para o formato compacto (long), 1 ou 2 para o formato em bytes.
+     */
+    static int bytesPorJogada(int totalCelulas) {
+        if (totalCelulas <= MAXIMO_CELULAS_COMPACTO) return 0;
+        return totalCelulas <= 256 ? 1 : 2;
+    }
+
+    /**
+     * Escreve a posição de um lance no array de bytes de um registro.
+     */
+    static void gravar(byte[] bytes, int bytesPorJogada, int lance, int posicao) {
+        if (bytesPorJogada == 1) {
+            bytes[lance] = (byte) posicao;
+        } else {
+            bytes[2 * lance] = (byte) (posicao >>> 8);
+            bytes[2 * lance + 1] = (byte) posicao;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package projeto;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro concorrente das sessões de jogo, com expiração por inatividade e limite de tamanho.
+ * As sessões são espalhadas por faixas ("stripes") pelo id; cada faixa é um LinkedHashMap em
+ * ordem de acesso com a sua própria trava, então buscas em faixas diferentes não disputam nada
+ * e, com muito mais faixas que núcleos, duas threads raramente caem na mesma.
+ * O limite de tamanho é dividido entre as faixas: ao passar dele, a faixa descarta a sessão
+ * usada há mais tempo (LRU aproximado, por faixa). {@link #expirar()} remove as sessões ociosas
+ * além do TTL e as terminadas há mais que um TTL menor, olhando só o começo de cada faixa: as
+ * sessões estão em ordem de acesso (e as terminadas numa fila à parte, em ordem de término, que é
+ * a ordem em que vencem), então a varredura para na primeira que ainda não venceu, sem percorrer
+ * as ativas nem pegar a trava de nenhuma sessão. Os contadores são LongAdder, que não disputam a mesma linha de cache entre núcleos.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class RegistroSessoes {
+
+    // --- ATRIBUTOS --- //
+    private final Faixa[] faixas;
+    private final int mascara;
+    private final int capacidadePorFaixa;
+    private final long ttlOciosasNanos;
+    private final long ttlTerminadasNanos;
+    private final AtomicLong proximoId = new AtomicLong(1);
+    private final LongAdder vivas = new LongAdder();
+    private final LongAdder criadas = new LongAdder();
+    private final LongAdder expiradas = new LongAdder();
+    private final LongAdder despejadas = new LongAdder();
+
+    /**
+     * Uma faixa do registro: as sessões em ordem de acesso (a primeira é a usada há mais tempo)
+     * e as que terminaram, na ordem em que terminaram. A fila pode ter sessões já removidas (por
+     * despejo, SAIR ou expiração por ociosidade); elas são descartadas quando chegam ao começo,
+     * o que acontece no máximo um TTL de terminadas depois do término. O próprio objeto é a trava da faixa.
+     */
+    private static final class Faixa {
+        final LinkedHashMap<Long, SessaoJogo> sessoes = new LinkedHashMap<>(16, 0.75f, true);
+        final ArrayDeque<Terminada> terminadas = new ArrayDeque<>();
+    }
+
+    /**
+     * Uma sessão terminada e quando ela terminou (System.nanoTime()).
+     */
+    private static final class Terminada {
+        final SessaoJogo sessao;
+        final long quando;
+
+        Terminada(SessaoJogo sessao, long quando) {
+            this.sessao = sessao;
+            this.quando = quando;
+        }
+    }
+
+    /**
+     * Cria o registro.
+     * @param capacidade Máximo de sessões (somando as faixas).
+     * @param ttlOciosasMs Tempo sem uso após o qual uma sessão em andamento expira.
+     * @param ttlTerminadasMs Tempo depois do término da partida após o qual a sessão expira.
+     */
+    RegistroSessoes(int capacidade, long ttlOciosasMs, long ttlTerminadasMs) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("A capacidade deve ser de pelo menos 1 sessão.");
+        }
+        if (ttlOciosasMs < 1 || ttlTerminadasMs < 1) {
+            throw new IllegalArgumentException("Os tempos de expiração devem ser de pelo menos 1 ms.");
+        }
+        // Potência de 2 com folga sobre o número de núcleos, sem passar da capacidade.
+        int quantidade = Integer.highestOneBit(Math.max(1, Math.min(capacidade, 16 * Runtime.getRuntime().availableProcessors())));
+        this.faixas = new Faixa[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            faixas[i] = new Faixa();
+        }
+        this.mascara = quantidade - 1;
+        this.capacidadePorFaixa = capacidade / quantidade; // Arredonda para baixo: nunca passa da capacidade.
+        this.ttlOciosasNanos = TimeUnit.MILLISECONDS.toNanos(ttlOciosasMs);
+        this.ttlTerminadasNanos = TimeUnit.MILLISECONDS.toNanos(ttlTerminadasMs);
+    }
+
+    // --- MÉTODOS --- //
+
+    /**
+     * Registra uma sessão nova em torno do jogo, com um id novo.
+     * @param jogo O jogo da sessão.
+     * @return A sessão criada.
+     */
+    SessaoJogo criar(JogoDaVelha jogo) {
+        long id = proximoId.getAndIncrement();
+        SessaoJogo sessao = new SessaoJogo(id, jogo);
+        Faixa faixa = faixa(id);
+        synchronized (faixa) {
+            faixa.sessoes.put(id, sessao);
+            if (faixa.sessoes.size() > capacidadePorFaixa) {
+                // A faixa lotou: descarta a sessão usada há mais tempo (a primeira na ordem de acesso).
+                Iterator<SessaoJogo> maisAntiga = faixa.sessoes.values().iterator();
+                maisAntiga.next();
+                maisAntiga.remove();
+                despejadas.increment();
+                vivas.decrement();
+            }
+        }
+        criadas.increment();
+        vivas.increment();
+        return sessao;
+    }
+
+    /**
+     * Busca uma sessão pelo id e a marca como usada.
+     * @return A sessão, ou null se não existe (ou já expirou).
+     */
+    SessaoJogo buscar(long id) {
+        Faixa faixa = faixa(id);
+        SessaoJogo sessao;
+        synchronized (faixa) {
+            sessao = faixa.sessoes.get(id);
+        }
+        if (sessao != null) {
+            sessao.tocar();
+        }
+        return sessao;
+    }
+
+    /**
+     * Indica se a sessão ainda existe, sem marcá-la como usada.
+     */
+    boolean existe(long id) {
+        Faixa faixa = faixa(id);
+        synchronized (faixa) {
+            return faixa.sessoes.containsKey(id);
+        }
+    }
+
+    /**
+     * Remove uma sessão.
+     * @return true se a sessão existia.
+     */
+    boolean remover(long id) {
+        Faixa faixa = faixa(id);
+        boolean removida;
+        synchronized (faixa) {
+            removida = faixa.sessoes.remove(id) != null;
+        }
+        if (removida) {
+            vivas.decrement();
+        }
+        return removida;
+    }
+
+    /**
+     * Avisa que a partida de uma sessão terminou, para ela expirar pelo TTL de terminadas.
+     * Deve ser chamado uma vez por sessão, por quem fez a jogada que a encerrou.
+     */
+    void terminou(SessaoJogo sessao) {
+        Faixa faixa = faixa(sessao.getId());
+        synchronized (faixa) {
+            if (faixa.sessoes.containsKey(sessao.getId())) {
+                faixa.terminadas.addLast(new Terminada(sessao, System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Remove as sessões ociosas além do TTL e as terminadas há mais que o TTL de terminadas
+     * (contado do término, mesmo que a sessão continue sendo consultada). Trava uma faixa de cada
+     * vez, então as demais continuam atendendo durante a varredura, e em cada faixa só percorre as
+     * sessões vencidas (mais uma). A ordem de acesso segue as buscas, e o último acesso pode ser um
+     * pouco posterior à busca; uma sessão ociosa que fique atrás de outra ainda não vencida por isso
+     * só expira numa varredura seguinte. A fila de terminadas não tem esse problema: a ordem dela
+     * é a ordem do término, que é a mesma em que vencem.
+     * @return Quantas sessões foram removidas.
+     */
+    int expirar() {
+        long agora = System.nanoTime();
+        int removidas = 0;
+        for (Faixa faixa : faixas) {
+            synchronized (faixa) {
+                Iterator<SessaoJogo> sessoes = faixa.sessoes.values().iterator();
+                while (sessoes.hasNext() && agora - sessoes.next().getUltimoAcesso() > ttlOciosasNanos) {
+                    sessoes.remove();
+                    removidas++;
+                }
+                // As terminadas, em ordem de término: para na primeira que terminou há pouco tempo.
+                for (Terminada terminada; (terminada = faixa.terminadas.peekFirst()) != null
+                        && agora - terminada.quando > ttlTerminadasNanos; faixa.terminadas.pollFirst()) {
+                    if (faixa.sessoes.remove(terminada.sessao.getId()) != null) {
+                        removidas++;
+                    }
+                }
+            }
+        }
+        expiradas.add(removidas);
+        vivas.add(-removidas);
+        return removidas;
+    }
+
+    long getVivas() {
+        return vivas.sum();
+    }
+
+    long getCriadas() {
+        return criadas.sum();
+    }
+
+    long getExpiradas() {
+        return expiradas.sum();
+    }
+
+    long getDespejadas() {
+        return despejadas.sum();
+    }
+
+    /**
+     * Escolhe a faixa do id, misturando os bits para ids sequenciais se espalharem.
+     */
+    private Faixa faixa(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return faixas[(int) (h >>> 32) & mascara];
+    }
+
+    /**
+     * Descreve os contadores numa linha.
+     */
+    @Override
+    public String toString() {
+        return "vivas=" + getVivas() + " criadas=" + getCriadas() + " expiradas=" + getExpiradas()
+                + " despejadas=" + getDespejadas();
+    }
+}
@@ -0,0 +1,424 @@
+package projeto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servidor de partidas pela rede, sem interface gráfica (nada de Swing é carregado).
+ * Usa NIO não bloqueante: alguns "reatores", cada um com o seu Selector e a sua thread, atendem
+ * as conexões (distribuídas em rodízio); o primeiro também aceita as conexões novas. Os comandos
+ * são baratos e executados na própria thread do reator. As partidas ficam num {@link RegistroSessoes},
+ * dividido em faixas com travas próprias, e cada uma tem a sua trava ({@link SessaoJogo}), então não
+ * existe trava global. O primeiro reator varre o registro periodicamente para expirar as partidas
+ * abandonadas; o registro também tem um limite de tamanho, então a memória não cresce sem fim.
+ *
+ * Protocolo de texto, um comando por linha (ASCII), uma resposta por comando (UTF-8):
+ *   CRIAR [nivel] | CRIAR largura altura alinhamento [nivel]  ->  OK id 1
+ *   ENTRAR id                                                 ->  OK id 2
+ *   JOGAR id posicao                                          ->  ESTADO ...
+ *   ESTADO id                                                 ->  ESTADO id largura altura alinhamento vez resultado celulas
+ *   STATUS                                                    ->  STATUS vivas criadas expiradas despejadas
+ *   SAIR                                                      ->  OK (e a conexão é fechada)
+ * Erros são respondidos com "ERRO mensagem". Quem cria a partida é o jogador 1; com nivel (1 a 3)
+ * o jogador 2 é a máquina, que responde dentro do próprio JOGAR.
+ *
+ * Uso: java projeto.ServidorJogos [porta] [reatores]
+ * Para conferir o servidor de ponta a ponta pela rede local: java projeto.VerificacaoServidor
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public class ServidorJogos implements Closeable {
+
+    // --- ATRIBUTOS --- //
+    static final int PORTA_PADRAO = 7373;
+    // Os níveis 4 e 5 criam motores pesados por partida (a busca paralela tem uma tabela de 16 MiB)
+    // e buscam por até um segundo, o que não cabe em centenas de milhares de sessões num reator.
+    private static final int NIVEL_MAXIMO = 3;
+    // Limite de células por partida, para um cliente não alocar tabuleiros enormes.
+    private static final int MAXIMO_CELULAS = 1024;
+    private static final int MAXIMO_LINHA = 256;
+    private static final int MAXIMO_SAIDA = 1 << 20; // Cliente que não lê as respostas é desconectado.
+    static final int CAPACIDADE_PADRAO = 1_000_000;
+    static final long TTL_OCIOSAS_PADRAO_MS = 30 * 60 * 1000L;
+    static final long TTL_TERMINADAS_PADRAO_MS = 60 * 1000L;
+    private static final long INTERVALO_EXPIRACAO_MS = 1000;
+    // Quantos lugares uma conexão guarda antes da primeira limpeza dos de partidas que já expiraram.
+    private static final int MAXIMO_LUGARES = 1024;
+
+    private final ServerSocketChannel servidor;
+    private final Reator[] reatores;
+    private final Thread[] threads;
+    private final RegistroSessoes sessoes;
+    private volatile boolean ativo = true;
+    private int proximoReator; // Só usado pela thread do reator que aceita as conexões.
+
+    /**
+     * Abre o servidor na porta indicada (0 escolhe uma porta livre) e começa a atender.
+     * @param porta A porta TCP.
+     * @param quantidadeReatores Quantas threads de rede (pelo menos 1).
+     * @throws IOException Se não for possível abrir a porta.
+     */
+    public ServidorJogos(int porta, int quantidadeReatores) throws IOException {
+        this(porta, quantidadeReatores, CAPACIDADE_PADRAO, TTL_OCIOSAS_PADRAO_MS, TTL_TERMINADAS_PADRAO_MS);
+    }
+
+    /**
+     * Abre o servidor com limites próprios para as partidas hospedadas.
+     * @param porta A porta TCP (0 escolhe uma porta livre).
+     * @param quantidadeReatores Quantas threads de rede (pelo menos 1).
+     * @param capacidade Máximo de partidas; passando dele, as usadas há mais tempo são descartadas.
+     * @param ttlOciosasMs Tempo sem uso após o qual uma partida em andamento expira.
+     * @param ttlTerminadasMs Tempo depois do término após o qual uma partida terminada expira.
+     * @throws IOException Se não for possível abrir a porta.
+     */
+    public ServidorJogos(int porta, int quantidadeReatores, int capacidade, long ttlOciosasMs, long ttlTerminadasMs) throws IOException {
+        if (quantidadeReatores < 1) {
+            throw new IllegalArgumentException("O servidor precisa de pelo menos 1 reator.");
+        }
+        this.sessoes = new RegistroSessoes(capacidade, ttlOciosasMs, ttlTerminadasMs);
+        this.servidor = ServerSocketChannel.open();
+        this.reatores = new Reator[quantidadeReatores];
+        this.threads = new Thread[quantidadeReatores];
+        try {
+            servidor.bind(new InetSocketAddress(porta));
+            servidor.configureBlocking(false);
+            for (int i = 0; i < quantidadeReatores; i++) {
+                reatores[i] = new Reator(Selector.open());
+            }
+            servidor.register(reatores[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (int i = 0; i < quantidadeReatores; i++) {
+            threads[i] = new Thread(reatores[i], "reator-" + i);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Ponto de entrada do servidor.
+     */
+    public static void main(String[] args) throws IOException {
+        int porta = args.length > 0 ? Integer.parseInt(args[0]) : PORTA_PADRAO;
+        int reatores = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        ServidorJogos servidor = new ServidorJogos(porta, reatores);
+        System.out.println("Servidor de partidas na porta " + servidor.getPorta() + " com " + reatores + " reatores.");
+    }
+
+    /**
+     * Retorna a porta em que o servidor está escutando.
+     */
+    public int getPorta() throws IOException {
+        return ((InetSocketAddress) servidor.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Retorna quantas partidas estão hospedadas.
+     */
+    public int getQuantidadeSessoes() {
+        return (int) sessoes.getVivas();
+    }
+
+    /**
+     * Para de atender e fecha todas as conexões.
+     */
+    @Override
+    public void close() throws IOException {
+        ativo = false;
+        for (Reator reator : reatores) {
+            if (reator != null) reator.selector.wakeup();
+        }
+        for (Thread thread : threads) {
+            if (thread == null) continue;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        servidor.close();
+    }
+
+    // --- PROTOCOLO --- //
+
+    /**
+     * Executa um comando e devolve a resposta (sem a quebra de linha).
+     * @return A resposta, ou null se a conexão deve ser fechada depois de responder "OK".
+     */
+    String executar(Lugares lugares, String linha) {
+        String[] partes = linha.trim().split("\\s+");
+        try {
+            switch (partes[0].toUpperCase()) {
+                case "CRIAR":
+                    return criar(lugares, partes);
+                case "ENTRAR": {
+                    exigirArgumentos(partes, 2);
+                    SessaoJogo sessao = buscar(partes[1]);
+                    sessao.entrar();
+                    lugares.ocupar(sessao.getId(), 2);
+                    return "OK " + sessao.getId() + " 2";
+                }
+                case "JOGAR": {
+                    exigirArgumentos(partes, 3);
+                    SessaoJogo sessao = buscar(partes[1]);
+                    Integer lugar = lugares.lugar(sessao.getId());
+                    if (lugar == null) {
+                        throw new IllegalStateException("Você não joga a partida " + sessao.getId() + ".");
+                    }
+                    if (sessao.jogar(lugar, Integer.parseInt(partes[2]))) {
+                        sessoes.terminou(sessao);
+                    }
+                    return sessao.descrever();
+                }
+                case "ESTADO":
+                    exigirArgumentos(partes, 2);
+                    return buscar(partes[1]).descrever();
+                case "STATUS":
+                    return "STATUS " + sessoes.getVivas() + ' ' + sessoes.getCriadas() + ' '
+                            + sessoes.getExpiradas() + ' ' + sessoes.getDespejadas();
+                case "SAIR":
+                    return null;
+                default:
+                    throw new IllegalArgumentException("Comando desconhecido: " + partes[0]);
+            }
+        } catch (NumberFormatException e) {
+            return "ERRO Número inválido: " + e.getMessage();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "ERRO " + e.getMessage();
+        }
+    }
+
+    private String criar(Lugares lugares, String[] partes) {
+        int largura = JogoDaVelha.TAMANHO_CLASSICO, altura = JogoDaVelha.TAMANHO_CLASSICO;
+        int alinhamento = JogoDaVelha.TAMANHO_CLASSICO, nivel = 0;
+        if (partes.length == 2) {
+            nivel = Integer.parseInt(partes[1]);
+        } else if (partes.length == 4 || partes.length == 5) {
+            largura = Integer.parseInt(partes[1]);
+            altura = Integer.parseInt(partes[2]);
+            alinhamento = Integer.parseInt(partes[3]);
+            if (partes.length == 5) nivel = Integer.parseInt(partes[4]);
+        } else if (partes.length != 1) {
+            throw new IllegalArgumentException("Uso: CRIAR [nivel] ou CRIAR largura altura alinhamento [nivel]");
+        }
+        if (nivel < 0 || nivel > NIVEL_MAXIMO) {
+            throw new IllegalArgumentException("O servidor aceita os níveis 0 (dois jogadores) a " + NIVEL_MAXIMO + ".");
+        }
+        if ((long) largura * altura > MAXIMO_CELULAS) {
+            throw new IllegalArgumentException("O servidor aceita tabuleiros de até " + MAXIMO_CELULAS + " células.");
+        }
+        JogoDaVelha jogo = nivel == 0
+                ? new JogoDaVelha("X", "O", largura, altura, alinhamento)
+                : new JogoDaVelha("X", nivel, largura, altura, alinhamento);
+        long id = sessoes.criar(jogo).getId();
+        lugares.ocupar(id, 1);
+        return "OK " + id + " 1";
+    }
+
+    private SessaoJogo buscar(String id) {
+        SessaoJogo sessao = sessoes.buscar(Long.parseLong(id));
+        if (sessao == null) {
+            throw new IllegalArgumentException("A partida " + id + " não existe.");
+        }
+        return sessao;
+    }
+
+    private static void exigirArgumentos(String[] partes, int quantidade) {
+        if (partes.length != quantidade) {
+            throw new IllegalArgumentException("O comando " + partes[0] + " espera " + (quantidade - 1) + " argumento(s).");
+        }
+    }
+
+    /**
+     * Os lugares (1 ou 2) que um cliente ocupa em cada partida, pelo id. Ao chegar no limite,
+     * esquece os de partidas que já saíram do registro, e o limite passa a ser o dobro do que
+     * sobrou: cada limpeza percorre o mapa inteiro, mas só depois de o mapa dobrar, então o custo
+     * é O(1) amortizado por lugar, mesmo quando todas as partidas do cliente continuam vivas.
+     * Só é usado pela thread do reator da conexão.
+     */
+    final class Lugares {
+        private final Map<Long, Integer> porPartida = new HashMap<>();
+        private int limite = MAXIMO_LUGARES;
+
+        void ocupar(long id, int lugar) {
+            if (porPartida.size() >= limite) {
+                porPartida.keySet().removeIf(antiga -> !sessoes.existe(antiga));
+                limite = Math.max(MAXIMO_LUGARES, 2 * porPartida.size());
+            }
+            porPartida.put(id, lugar);
+        }
+
+        Integer lugar(long id) {
+            return porPartida.get(id);
+        }
+    }
+
+    // --- REDE --- //
+
+    /**
+     * Estado de uma conexão: a linha sendo lida, as respostas ainda não enviadas e os lugares
+     * que o cliente ocupa em cada partida. Só é usada pela thread do seu reator.
+     */
+    private final class Conexao {
+        final ByteBuffer entrada = ByteBuffer.allocate(4096);
+        final byte[] linha = new byte[MAXIMO_LINHA];
+        int tamanhoLinha;
+        ByteBuffer saida = ByteBuffer.allocate(1024);
+        boolean fecharAposEnviar;
+        final Lugares lugares = new Lugares();
+
+        void responder(String resposta) {
+            byte[] bytes = (resposta + "\n").getBytes(StandardCharsets.UTF_8);
+            if (saida.remaining() < bytes.length) {
+                int necessario = saida.position() + bytes.length;
+                ByteBuffer maior = ByteBuffer.allocate(Math.max(necessario, 2 * saida.capacity()));
+                saida.flip();
+                maior.put(saida);
+                saida = maior;
+            }
+            saida.put(bytes);
+        }
+    }
+
+    /**
+     * Uma thread de rede com o seu Selector.
+     */
+    private final class Reator implements Runnable {
+        final Selector selector;
+        // Conexões aceitas pelo primeiro reator e entregues a este, para registrar no seu Selector.
+        final ConcurrentLinkedQueue<SocketChannel> novas = new ConcurrentLinkedQueue<>();
+
+        Reator(Selector selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long proximaExpiracao = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INTERVALO_EXPIRACAO_MS);
+                while (ativo) {
+                    if (this != reatores[0]) {
+                        selector.select();
+                    } else {
+                        selector.select(INTERVALO_EXPIRACAO_MS);
+                        if (System.nanoTime() - proximaExpiracao >= 0) {
+                            sessoes.expirar();
+                            proximaExpiracao = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INTERVALO_EXPIRACAO_MS);
+                        }
+                    }
+                    for (SocketChannel canal; (canal = novas.poll()) != null; ) {
+                        canal.register(selector, SelectionKey.OP_READ, new Conexao());
+                    }
+                    Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+                    while (chaves.hasNext()) {
+                        SelectionKey chave = chaves.next();
+                        chaves.remove();
+                        try {
+                            if (!chave.isValid()) continue;
+                            if (chave.isAcceptable()) aceitar();
+                            if (chave.isValid() && chave.isReadable()) ler(chave);
+                            if (chave.isValid() && chave.isWritable()) escrever(chave);
+                        } catch (IOException e) {
+                            fechar(chave); // Cliente caiu ou fechou a conexão no meio.
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                for (SelectionKey chave : selector.keys()) {
+                    fechar(chave);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void aceitar() throws IOException {
+            for (SocketChannel canal; (canal = servidor.accept()) != null; ) {
+                canal.configureBlocking(false);
+                Reator destino = reatores[proximoReator++ % reatores.length];
+                if (destino == this) {
+                    canal.register(selector, SelectionKey.OP_READ, new Conexao());
+                } else {
+                    destino.novas.add(canal);
+                    destino.selector.wakeup();
+                }
+            }
+        }
+
+        private void ler(SelectionKey chave) throws IOException {
+            Conexao conexao = (Conexao) chave.attachment();
+            int lidos = ((SocketChannel) chave.channel()).read(conexao.entrada);
+            if (lidos < 0) {
+                fechar(chave);
+                return;
+            }
+            conexao.entrada.flip();
+            while (conexao.entrada.hasRemaining() && !conexao.fecharAposEnviar) {
+                byte b = conexao.entrada.get();
+                if (b == '\n') {
+                    String linha = new String(conexao.linha, 0, conexao.tamanhoLinha, StandardCharsets.US_ASCII);
+                    conexao.tamanhoLinha = 0;
+                    if (linha.isBlank()) continue;
+                    String resposta = executar(conexao.lugares, linha);
+                    if (resposta == null) {
+                        conexao.responder("OK");
+                        conexao.fecharAposEnviar = true;
+                    } else {
+                        conexao.responder(resposta);
+                    }
+                } else if (conexao.tamanhoLinha == MAXIMO_LINHA) {
+                    conexao.responder("ERRO Linha maior que " + MAXIMO_LINHA + " bytes.");
+                    conexao.fecharAposEnviar = true;
+                } else {
+                    conexao.linha[conexao.tamanhoLinha++] = b;
+                }
+            }
+            conexao.entrada.clear();
+            escrever(chave);
+        }
+
+        private void escrever(SelectionKey chave) throws IOException {
+            Conexao conexao = (Conexao) chave.attachment();
+            conexao.saida.flip();
+            ((SocketChannel) chave.channel()).write(conexao.saida);
+            conexao.saida.compact();
+            boolean pendente = conexao.saida.position() > 0;
+            if (!pendente && conexao.fecharAposEnviar) {
+                fechar(chave);
+            } else if (conexao.saida.position() > MAXIMO_SAIDA) {
+                fechar(chave);
+            } else {
+                // Só pede para ser avisado de escrita enquanto houver resposta pendente.
+                chave.interestOps(pendente ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        private void fechar(SelectionKey chave) {
+            chave.cancel();
+            try {
+                chave.channel().close();
+            } catch (IOException e) {
+                // Nada a fazer: a conexão já está sendo descartada.
+            }
+        }
+    }
+}
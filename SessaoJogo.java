@@ -0,0 +1,105 @@
+package projeto;
+
+/**
+ * Uma partida hospedada pelo {@link ServidorJogos}.
+ * Cada sessão tem o seu próprio monitor: jogadas, entradas e leituras de estado de uma mesma
+ * partida são serializadas entre si, mas sessões diferentes nunca disputam a mesma trava.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class SessaoJogo {
+
+    // --- ATRIBUTOS --- //
+    private final long id;
+    private final JogoDaVelha jogo;
+    // No modo Jogador vs. Jogador, se o lugar do jogador 2 já foi ocupado.
+    private boolean jogador2Ocupado;
+    // Instante (System.nanoTime) do último acesso, para a expiração por inatividade.
+    private volatile long ultimoAcesso = System.nanoTime();
+    // Cópia de jogo.terminou(), para a expiração consultar sem pegar a trava da sessão.
+    private volatile boolean terminada;
+
+    /**
+     * Cria a sessão em torno de um jogo novo.
+     * @param id O identificador da sessão.
+     * @param jogo O jogo hospedado (com a máquina como jogador 2, se o nível for maior que 0).
+     */
+    SessaoJogo(long id, JogoDaVelha jogo) {
+        this.id = id;
+        this.jogo = jogo;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long getUltimoAcesso() {
+        return ultimoAcesso;
+    }
+
+    /**
+     * Marca a sessão como usada agora.
+     */
+    void tocar() {
+        ultimoAcesso = System.nanoTime();
+    }
+
+    /**
+     * Indica se a partida já terminou, sem pegar a trava da sessão.
+     */
+    boolean terminou() {
+        return terminada;
+    }
+
+    /**
+     * Ocupa o lugar do jogador 2.
+     */
+    synchronized void entrar() {
+        if (jogo.getNivelMaquina() != 0) {
+            throw new IllegalStateException("O jogador 2 desta partida é a máquina.");
+        }
+        if (jogador2Ocupado) {
+            throw new IllegalStateException("A partida " + id + " já tem dois jogadores.");
+        }
+        jogador2Ocupado = true;
+        tocar();
+    }
+
+    /**
+     * Faz a jogada de um jogador e, contra a máquina, já a resposta dela.
+     * @param jogador Quem joga (1 ou 2).
+     * @param posicao A posição escolhida.
+     * @return true se foi esta jogada (ou a resposta da máquina) que encerrou a partida.
+     */
+    synchronized boolean jogar(int jogador, int posicao) {
+        jogo.jogaJogador(jogador, posicao);
+        if (jogo.getNivelMaquina() != 0 && !jogo.terminou()) {
+            jogo.jogaMaquina();
+        }
+        tocar();
+        terminada = jogo.terminou();
+        return terminada;
+    }
+
+    /**
+     * Descreve o estado da partida numa linha:
+     * "ESTADO id largura altura alinhamento vez resultado celulas", em que cada célula é
+     * '.' (livre), '1' ou '2', linha a linha, e vez é 0 quando a partida terminou.
+     * @return A linha, sem a quebra de linha.
+     */
+    synchronized String descrever() {
+        int total = jogo.getTotalCelulas();
+        byte[] celulas = new byte[total];
+        jogo.copiarTabuleiro(celulas);
+        StringBuilder linha = new StringBuilder(48 + total);
+        linha.append("ESTADO ").append(id).append(' ')
+             .append(jogo.getLargura()).append(' ').append(jogo.getAltura()).append(' ').append(jogo.getAlinhamento()).append(' ')
+             .append(jogo.terminou() ? 0 : jogo.getJogadorAtual()).append(' ')
+             .append(jogo.getResultado()).append(' ');
+        for (int i = 0; i < total; i++) {
+            linha.append(celulas[i] == 0 ? '.' : (char) ('0' + celulas[i]));
+        }
+        tocar();
+        return linha.toString();
+    }
+}
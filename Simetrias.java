@@ -0,0 +1,133 @@
+package projeto;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * As 8 simetrias do tabuleiro clássico 3x3 (4 rotações x espelhamento).
+ * Posições equivalentes por simetria têm o mesmo valor de jogo, então motores e tabelas
+ * guardam só a forma canônica: a menor chave entre as 8 transformações.
+ * Para os outros tamanhos, {@link #doTabuleiro(int, int)} dá as simetrias válidas
+ * (8 nos tabuleiros quadrados, 4 nos retangulares).
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class Simetrias {
+
+    // --- ATRIBUTOS --- //
+    // Para cada uma das 8 simetrias, para onde vai cada uma das 9 posições.
+    static final int[][] SIMETRIAS = new int[8][9];
+    // Índice da simetria inversa de cada simetria (desfaz a transformação).
+    static final int[] INVERSA = new int[8];
+    // Máscaras de 9 bits já transformadas por cada simetria (8 x 512), para canonizar em O(1).
+    private static final int[][] TRANSFORMADAS = new int[8][512];
+    // Simetrias dos tabuleiros (m,n) já calculadas, pela chave largura << 32 | altura.
+    private static final ConcurrentHashMap<Long, int[][]> POR_TABULEIRO = new ConcurrentHashMap<>();
+
+    static {
+        for (int pos = 0; pos < 9; pos++) {
+            int l = pos / 3, c = pos % 3;
+            SIMETRIAS[0][pos] = l * 3 + c;             // Identidade.
+            SIMETRIAS[1][pos] = c * 3 + (2 - l);       // Rotação de 90 graus.
+            SIMETRIAS[2][pos] = (2 - l) * 3 + (2 - c); // Rotação de 180 graus.
+            SIMETRIAS[3][pos] = (2 - c) * 3 + l;       // Rotação de 270 graus.
+            SIMETRIAS[4][pos] = l * 3 + (2 - c);       // Espelho horizontal.
+            SIMETRIAS[5][pos] = (2 - l) * 3 + c;       // Espelho vertical.
+            SIMETRIAS[6][pos] = c * 3 + l;             // Diagonal principal.
+            SIMETRIAS[7][pos] = (2 - c) * 3 + (2 - l); // Diagonal secundária.
+        }
+        for (int s = 0; s < 8; s++) {
+            for (int t = 0; t < 8; t++) {
+                boolean inversa = true;
+                for (int pos = 0; pos < 9 && inversa; pos++) {
+                    inversa = SIMETRIAS[t][SIMETRIAS[s][pos]] == pos;
+                }
+                if (inversa) INVERSA[s] = t;
+            }
+            for (int mascara = 0; mascara < 512; mascara++) {
+                TRANSFORMADAS[s][mascara] = transformar(s, mascara);
+            }
+        }
+    }
+
+    private Simetrias() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    /**
+     * Retorna as simetrias de um tabuleiro largura x altura. Nos quadrados são as 8, na mesma ordem
+     * de {@link #SIMETRIAS}; nos retangulares, só as 4 que preservam o formato (identidade, rotação
+     * de 180 graus e os dois espelhos). Os arrays são compartilhados e não podem ser modificados.
+     * @return Para cada simetria, para onde vai cada posição.
+     */
+    static int[][] doTabuleiro(int largura, int altura) {
+        if (largura == 3 && altura == 3) {
+            return SIMETRIAS;
+        }
+        return POR_TABULEIRO.computeIfAbsent(((long) largura << 32) | altura, chave -> {
+            int total = largura * altura;
+            boolean quadrado = largura == altura;
+            int[][] simetrias = new int[quadrado ? 8 : 4][total];
+            int ml = altura - 1, mc = largura - 1;
+            for (int pos = 0; pos < total; pos++) {
+                int l = pos / largura, c = pos % largura;
+                if (quadrado) {
+                    simetrias[0][pos] = l * largura + c;               // Identidade.
+                    simetrias[1][pos] = c * largura + (mc - l);        // Rotação de 90 graus.
+                    simetrias[2][pos] = (ml - l) * largura + (mc - c); // Rotação de 180 graus.
+                    simetrias[3][pos] = (mc - c) * largura + l;        // Rotação de 270 graus.
+                    simetrias[4][pos] = l * largura + (mc - c);        // Espelho horizontal.
+                    simetrias[5][pos] = (ml - l) * largura + c;        // Espelho vertical.
+                    simetrias[6][pos] = c * largura + l;               // Diagonal principal.
+                    simetrias[7][pos] = (mc - c) * largura + (ml - l); // Diagonal secundária.
+                } else {
+                    simetrias[0][pos] = l * largura + c;               // Identidade.
+                    simetrias[1][pos] = (ml - l) * largura + (mc - c); // Rotação de 180 graus.
+                    simetrias[2][pos] = l * largura + (mc - c);        // Espelho horizontal.
+                    simetrias[3][pos] = (ml - l) * largura + c;        // Espelho vertical.
+                }
+            }
+            return simetrias;
+        });
+    }
+
+    /**
+     * Encontra a forma canônica da posição (a menor chave entre as 8 simetrias).
+     * @param daVez Máscara do jogador que vai jogar.
+     * @param oponente Máscara do adversário.
+     * @return A chave canônica (daVez | oponente << 9) nos 18 bits baixos e o índice
+     *         da simetria usada nos bits acima.
+     */
+    static int canonizar(int daVez, int oponente) {
+        int melhorChave = Integer.MAX_VALUE;
+        int melhorSimetria = 0;
+        for (int s = 0; s < 8; s++) {
+            int chave = TRANSFORMADAS[s][daVez] | (TRANSFORMADAS[s][oponente] << 9);
+            if (chave < melhorChave) {
+                melhorChave = chave;
+                melhorSimetria = s;
+            }
+        }
+        return melhorChave | (melhorSimetria << 18);
+    }
+
+    /**
+     * Leva uma posição das coordenadas canônicas de volta para as do tabuleiro real.
+     * @param canonica O valor devolvido por {@link #canonizar(int, int)}.
+     * @param posicaoCanonica Posição (0-8) nas coordenadas da forma canônica.
+     * @return A posição correspondente no tabuleiro original.
+     */
+    static int posicaoOriginal(int canonica, int posicaoCanonica) {
+        return SIMETRIAS[INVERSA[canonica >>> 18]][posicaoCanonica];
+    }
+
+    /**
+     * Aplica uma simetria a uma máscara de 9 bits, bit a bit.
+     */
+    private static int transformar(int simetria, int mascara) {
+        int transformada = 0;
+        for (int pos = 0; pos < 9; pos++) {
+            if ((mascara & (1 << pos)) != 0) transformada |= 1 << SIMETRIAS[simetria][pos];
+        }
+        return transformada;
+    }
+}
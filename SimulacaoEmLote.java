@@ -0,0 +1,213 @@
+package projeto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executor de partidas em lote, sem interface gráfica (nada de Swing é carregado).
+ * Joga N partidas entre dois níveis de máquina, espalhando as partidas por todos os núcleos.
+ * Cada partida recebe uma semente derivada da semente do lote e do seu número, então, com os
+ * níveis 1, 2, 3 e 5, o mesmo lote produz sempre os mesmos resultados, qualquer que seja o número
+ * de threads. O nível 4 não entra nessa garantia: a busca para no fim de um orçamento de tempo
+ * e a tabela de transposição do motor passa de uma partida para a seguinte da mesma fatia.
+ * No fim imprime vitórias/empates/derrotas, partidas por segundo e os percentis da latência por jogada.
+ *
+ * Uso: java projeto.SimulacaoEmLote partidas nivelJogador1 nivelJogador2 [threads] [semente] [largura altura alinhamento]
+ * Medição da escala: java projeto.SimulacaoEmLote escala partidas nivelJogador1 nivelJogador2 [semente] [largura altura alinhamento]
+ * joga o mesmo lote com 1, 2, 4... threads (até o número de núcleos) e compara as vazões.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public class SimulacaoEmLote {
+
+    // --- ATRIBUTOS --- //
+    // Constante de Weyl (razão áurea em 64 bits) usada para espalhar as sementes das partidas.
+    private static final long GAMA = 0x9E3779B97F4A7C15L;
+    // Orçamentos das buscas dos níveis 4 e 5 dentro do lote: cada partida já ocupa um núcleo,
+    // então as buscas rodam com 1 thread e limites pequenos.
+    private static final long ORCAMENTO_BUSCA_MS = 10;
+    private static final int SIMULACOES_MONTE_CARLO = 2_000;
+
+    private final int partidas;
+    private final int[] niveis;
+    private final int threads;
+    private final long semente;
+    private final int largura, altura, alinhamento;
+
+    /**
+     * Resultado parcial de uma fatia do lote (uma por thread).
+     */
+    private static final class Placar {
+        long vitoriasJogador1, vitoriasJogador2, empates, jogadas;
+        final HistogramaLatencia latencias = new HistogramaLatencia();
+
+        void somar(Placar outro) {
+            vitoriasJogador1 += outro.vitoriasJogador1;
+            vitoriasJogador2 += outro.vitoriasJogador2;
+            empates += outro.empates;
+            jogadas += outro.jogadas;
+            latencias.somar(outro.latencias);
+        }
+    }
+
+    SimulacaoEmLote(int partidas, int nivelJogador1, int nivelJogador2, int threads, long semente,
+                    int largura, int altura, int alinhamento) {
+        if (partidas < 1) {
+            throw new IllegalArgumentException("O lote precisa de pelo menos 1 partida.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("O lote precisa de pelo menos 1 thread.");
+        }
+        if (nivelJogador1 < 1 || nivelJogador1 > 5 || nivelJogador2 < 1 || nivelJogador2 > 5) {
+            throw new IllegalArgumentException("Os níveis devem ser entre 1 e 5.");
+        }
+        // Confere o tabuleiro antes de distribuir as partidas, como o JogoDaVelha faria em cada uma delas.
+        JogoDaVelha.validarDimensoes(largura, altura, alinhamento);
+        if ((nivelJogador1 == 3 || nivelJogador2 == 3) && !JogoDaVelha.ehClassico(largura, altura, alinhamento)) {
+            throw new IllegalArgumentException("O nível 3 (perfeito) só está disponível no tabuleiro 3x3.");
+        }
+        this.partidas = partidas;
+        this.niveis = new int[]{nivelJogador1, nivelJogador2};
+        this.threads = threads;
+        this.semente = semente;
+        this.largura = largura;
+        this.altura = altura;
+        this.alinhamento = alinhamento;
+    }
+
+    /**
+     * Ponto de entrada do modo em lote.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("escala")) {
+            medirEscala(args);
+            return;
+        }
+        // As dimensões vêm as três juntas: com só uma ou duas, o lote não pode cair no 3x3 sem avisar.
+        if (args.length < 3 || args.length == 6 || args.length == 7 || args.length > 8) {
+            System.err.println("Uso: java projeto.SimulacaoEmLote partidas nivelJogador1 nivelJogador2"
+                    + " [threads] [semente] [largura altura alinhamento]");
+            System.exit(2);
+        }
+        int partidas = Integer.parseInt(args[0]);
+        int nivel1 = Integer.parseInt(args[1]);
+        int nivel2 = Integer.parseInt(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long semente = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        int largura = args.length == 8 ? Integer.parseInt(args[5]) : JogoDaVelha.TAMANHO_CLASSICO;
+        int altura = args.length == 8 ? Integer.parseInt(args[6]) : JogoDaVelha.TAMANHO_CLASSICO;
+        int alinhamento = args.length == 8 ? Integer.parseInt(args[7]) : JogoDaVelha.TAMANHO_CLASSICO;
+
+        new SimulacaoEmLote(partidas, nivel1, nivel2, threads, semente, largura, altura, alinhamento).executar();
+    }
+
+    /**
+     * Joga o mesmo lote com 1, 2, 4... threads, até o número de núcleos, e mostra a vazão de cada um.
+     * Com os níveis determinísticos o placar tem de ser o mesmo em todas as rodadas.
+     */
+    private static void medirEscala(String[] args) throws InterruptedException {
+        if (args.length != 4 && args.length != 5 && args.length != 8) {
+            System.err.println("Uso: java projeto.SimulacaoEmLote escala partidas nivelJogador1 nivelJogador2"
+                    + " [semente] [largura altura alinhamento]");
+            System.exit(2);
+        }
+        int partidas = Integer.parseInt(args[1]);
+        int nivel1 = Integer.parseInt(args[2]);
+        int nivel2 = Integer.parseInt(args[3]);
+        long semente = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        int largura = args.length == 8 ? Integer.parseInt(args[5]) : JogoDaVelha.TAMANHO_CLASSICO;
+        int altura = args.length == 8 ? Integer.parseInt(args[6]) : JogoDaVelha.TAMANHO_CLASSICO;
+        int alinhamento = args.length == 8 ? Integer.parseInt(args[7]) : JogoDaVelha.TAMANHO_CLASSICO;
+        int nucleos = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("Escala: nível %d x nível %d, %d partidas, tabuleiro %dx%d com %d em linha, %d núcleos%n",
+                nivel1, nivel2, partidas, largura, altura, alinhamento, nucleos);
+        double base = 0;
+        for (int threads = 1; ; threads = Math.min(2 * threads, nucleos)) {
+            SimulacaoEmLote lote = new SimulacaoEmLote(partidas, nivel1, nivel2, threads, semente, largura, altura, alinhamento);
+            long inicio = System.nanoTime();
+            Placar placar = lote.jogar();
+            double vazao = partidas / ((System.nanoTime() - inicio) / 1e9);
+            if (threads == 1) base = vazao;
+            System.out.printf("%3d threads: %8.0f partidas/s (%.2fx), placar %d/%d/%d%n",
+                    threads, vazao, vazao / base, placar.vitoriasJogador1, placar.empates, placar.vitoriasJogador2);
+            if (threads == nucleos) break;
+        }
+    }
+
+    /**
+     * Joga o lote inteiro e imprime o relatório.
+     */
+    void executar() throws InterruptedException {
+        long inicio = System.nanoTime();
+        Placar total = jogar();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.out.printf("Nível %d (jogador 1) x nível %d (jogador 2), tabuleiro %dx%d com %d em linha, %d threads, semente %d%n",
+                niveis[0], niveis[1], largura, altura, alinhamento, threads, semente);
+        System.out.printf("Vitórias do jogador 1: %d | Empates: %d | Vitórias do jogador 2: %d%n",
+                total.vitoriasJogador1, total.empates, total.vitoriasJogador2);
+        System.out.printf("%d partidas em %.2fs: %.0f partidas/s (%.0f por minuto), %d jogadas%n",
+                partidas, segundos, partidas / segundos, partidas / segundos * 60, total.jogadas);
+        System.out.println("Latência por jogada: " + total.latencias.resumo());
+    }
+
+    /**
+     * Joga o lote inteiro, dividido em uma fatia por thread.
+     * @return O placar somado das fatias.
+     */
+    private Placar jogar() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Placar>> fatias = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            // Cada thread pega as partidas t, t + threads, t + 2*threads, ...
+            final int primeira = t;
+            fatias.add(() -> jogarFatia(primeira, threads));
+        }
+
+        Placar total = new Placar();
+        try {
+            for (Future<Placar> fatia : executor.invokeAll(fatias)) {
+                total.somar(fatia.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha durante a simulação.", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return total;
+    }
+
+    /**
+     * Joga as partidas de uma fatia do lote, na thread atual. Os motores dos níveis 4 e 5 são
+     * criados uma vez por fatia e usados por todas as suas partidas.
+     */
+    private Placar jogarFatia(int primeira, int passo) {
+        Placar placar = new Placar();
+        BuscaParalela busca = new BuscaParalela(1, ORCAMENTO_BUSCA_MS);
+        BuscaMonteCarlo monteCarlo = new BuscaMonteCarlo(1, SIMULACOES_MONTE_CARLO, 0);
+        for (int i = primeira; i < partidas; i += passo) {
+            JogoDaVelha jogo = new JogoDaVelha("X", "O", largura, altura, alinhamento);
+            jogo.definirSemente(semente + i * GAMA);
+            jogo.usarMotores(busca, monteCarlo);
+            while (!jogo.terminou()) {
+                int jogador = jogo.getJogadorAtual();
+                long antes = System.nanoTime();
+                jogo.jogaJogador(jogador, jogo.escolherJogada(niveis[jogador - 1]));
+                placar.latencias.registrar(System.nanoTime() - antes);
+                placar.jogadas++;
+            }
+            switch (jogo.getResultado()) {
+                case 1: placar.vitoriasJogador1++; break;
+                case 2: placar.vitoriasJogador2++; break;
+                default: placar.empates++; break;
+            }
+        }
+        return placar;
+    }
+}
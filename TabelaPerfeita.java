@@ -0,0 +1,179 @@
+package projeto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tabela de jogo perfeito ("tablebase") pré-calculada para o tabuleiro 3x3.
+ * O arquivo guarda, para cada posição canônica, a melhor jogada e o valor do jogo, e é mapeado
+ * em memória (somente leitura) na primeira consulta. Assim a máquina não precisa resolver o jogo
+ * a cada início da JVM e cada consulta é só uma leitura no buffer, sem alocar nada no heap.
+ * Se o arquivo não existir (ou for inválido), cai para o {@link MotorPerfeito}, que resolve em memória.
+ *
+ * Formato do arquivo: cabeçalho de 8 bytes (a assinatura "JDVT" e a versão) seguido de 3^9 bytes,
+ * um por posição, no índice ternário da forma canônica (0 = vazia, 1 = quem joga, 2 = adversário).
+ * Cada byte traz a jogada nos 4 bits baixos e o resultado (0 derrota, 1 empate, 2 vitória)
+ * nos 2 bits seguintes; 0xFF marca posições que não são canônicas ou não são alcançáveis.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class TabelaPerfeita {
+
+    // --- ATRIBUTOS --- //
+    // Caminho padrão do arquivo; pode ser trocado com -Djogodavelha.tabela=...
+    static final String ARQUIVO_PADRAO = "jogodavelha.tab";
+    private static final int ASSINATURA = 0x4A445654; // "JDVT"
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 8;
+    private static final int TOTAL_POSICOES = 19683; // 3^9
+    private static final int AUSENTE = 0xFF;
+    // Para cada máscara de 9 bits, o número em base 3 com um dígito 1 em cada bit ligado.
+    private static final int[] TERNARIO = new int[512];
+
+    static {
+        for (int mascara = 0; mascara < 512; mascara++) {
+            int valor = 0;
+            for (int pos = 8; pos >= 0; pos--) {
+                valor = valor * 3 + ((mascara >>> pos) & 1);
+            }
+            TERNARIO[mascara] = valor;
+        }
+    }
+
+    /**
+     * Carrega a tabela de forma preguiçosa e segura entre threads (idioma do "holder").
+     * Fica null quando o arquivo não está disponível.
+     */
+    private static final class Mapeamento {
+        static final MappedByteBuffer BUFFER = mapear(Paths.get(System.getProperty("jogodavelha.tabela", ARQUIVO_PADRAO)));
+    }
+
+    private TabelaPerfeita() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    // --- MÉTODOS DE CONSULTA --- //
+
+    /**
+     * Retorna a melhor jogada para quem está na vez.
+     * @param daVez Máscara do jogador que vai jogar.
+     * @param oponente Máscara do adversário.
+     * @return A posição (0-8) da jogada perfeita.
+     */
+    static int melhorJogada(int daVez, int oponente) {
+        MappedByteBuffer buffer = Mapeamento.BUFFER;
+        if (buffer == null) {
+            return MotorPerfeito.melhorJogada(daVez, oponente);
+        }
+        int canonica = Simetrias.canonizar(daVez, oponente);
+        int entrada = buffer.get(TAMANHO_CABECALHO + indice(canonica)) & 0xFF;
+        return Simetrias.posicaoOriginal(canonica, entrada & 0x0F);
+    }
+
+    /**
+     * Retorna o resultado teórico da posição para quem está na vez.
+     * @param daVez Máscara do jogador que vai jogar.
+     * @param oponente Máscara do adversário.
+     * @return 1 se quem joga vence, -1 se perde, 0 se empata.
+     */
+    static int resultado(int daVez, int oponente) {
+        MappedByteBuffer buffer = Mapeamento.BUFFER;
+        if (buffer == null) {
+            return Integer.signum(MotorPerfeito.valor(daVez, oponente));
+        }
+        int entrada = buffer.get(TAMANHO_CABECALHO + indice(Simetrias.canonizar(daVez, oponente))) & 0xFF;
+        return ((entrada >>> 4) & 0x03) - 1;
+    }
+
+    /**
+     * Indica se as consultas estão sendo atendidas pelo arquivo mapeado em memória.
+     * @return true se o arquivo foi carregado; false se estamos usando o cálculo em memória.
+     */
+    static boolean isMapeada() {
+        return Mapeamento.BUFFER != null;
+    }
+
+    // --- GERADOR --- //
+
+    /**
+     * Gera o arquivo da tabela a partir do {@link MotorPerfeito}.
+     * Uso: java projeto.TabelaPerfeita [arquivo]
+     */
+    public static void main(String[] args) throws IOException {
+        Path destino = Paths.get(args.length > 0 ? args[0] : ARQUIVO_PADRAO);
+        gerar(destino);
+        System.out.println("Tabela com " + MotorPerfeito.getPosicoesResolvidas() + " posições canônicas gravada em " + destino);
+    }
+
+    /**
+     * Escreve a tabela completa no caminho indicado, sobrescrevendo o arquivo se existir.
+     * @param destino Caminho do arquivo a ser gerado.
+     * @throws IOException Se não for possível gravar o arquivo.
+     */
+    static void gerar(Path destino) throws IOException {
+        ByteBuffer conteudo = ByteBuffer.allocate(TAMANHO_CABECALHO + TOTAL_POSICOES).order(ByteOrder.BIG_ENDIAN);
+        conteudo.putInt(ASSINATURA).putInt(VERSAO);
+        for (int daVez = 0; daVez < 512; daVez++) {
+            for (int oponente = 0; oponente < 512; oponente++) {
+                if ((daVez & oponente) != 0) continue; // Uma casa não pode ter dois donos.
+                int canonica = Simetrias.canonizar(daVez, oponente);
+                boolean ehCanonica = (canonica & 0x3FFFF) == (daVez | (oponente << 9));
+                int entrada = AUSENTE;
+                if (ehCanonica && MotorPerfeito.resolvida(daVez, oponente)) {
+                    int valor = MotorPerfeito.valor(daVez, oponente);
+                    // Posições terminais não têm jogada; usamos 0x0F para marcar isso.
+                    boolean terminal = JogoDaVelha.verificaVencedor(oponente) || (daVez | oponente) == 0x1FF;
+                    int jogada = terminal ? 0x0F : MotorPerfeito.melhorJogada(daVez, oponente);
+                    entrada = ((Integer.signum(valor) + 1) << 4) | jogada;
+                }
+                conteudo.put(TAMANHO_CABECALHO + TERNARIO[daVez] + 2 * TERNARIO[oponente], (byte) entrada);
+            }
+        }
+        conteudo.rewind();
+        try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (conteudo.hasRemaining()) {
+                canal.write(conteudo);
+            }
+        }
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    /**
+     * Converte a chave canônica (duas máscaras) no índice ternário usado no arquivo.
+     */
+    static int indice(int canonica) {
+        return TERNARIO[canonica & 0x1FF] + 2 * TERNARIO[(canonica >>> 9) & 0x1FF];
+    }
+
+    /**
+     * Mapeia o arquivo em memória, somente leitura, validando cabeçalho e tamanho.
+     * @return O buffer mapeado, ou null se o arquivo não existir ou não for uma tabela válida.
+     */
+    private static MappedByteBuffer mapear(Path arquivo) {
+        if (!Files.isReadable(arquivo)) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (canal.size() != TAMANHO_CABECALHO + TOTAL_POSICOES) {
+                return null;
+            }
+            // O mapeamento continua válido mesmo depois que o canal é fechado.
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (buffer.getInt(0) != ASSINATURA || buffer.getInt(4) != VERSAO) {
+                return null;
+            }
+            return buffer;
+        } catch (IOException e) {
+            return null; // Sem tabela: o MotorPerfeito resolve em memória.
+        }
+    }
+}
@@ -9,12 +9,19 @@ import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import javax.swing.BorderFactory;
-import javax.swing.DefaultListModel;
+import javax.swing.AbstractListModel;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
@@ -24,10 +31,8 @@ import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
-import javax.swing.Timer;
 
 /**
  * Interface gráfica (GUI) do Jogo da Velha.
@@ -40,45 +45,150 @@ public class TelaJogo {
     // --- ATRIBUTOS (COMPONENTES SWING E CONTROLE DE UI) --- //
     private JFrame frmJogoDaVelha;
     private JogoDaVelha jogo; // A instância da nossa classe de lógica.
-    // Array de labels que funcionam como as 9 células do tabuleiro na tela.
-    private JLabel[] labelsTabuleiro = new JLabel[9];
-    // ComboBoxes para o usuário escolher os símbolos e o modo de jogo.
-    private JComboBox<String> comboBoxSimboloP1, comboBoxSimboloP2, comboBoxModoJogo, comboBoxNivelMaquina;
+    // Array de labels que funcionam como as células do tabuleiro na tela (9 no 3x3).
+    private JLabel[] labelsTabuleiro = new JLabel[0];
+    // Painel que contém as células; é remontado quando o tamanho do tabuleiro muda.
+    private JPanel painelTabuleiro;
+    // ComboBoxes para o usuário escolher os símbolos, o modo de jogo e o tamanho do tabuleiro.
+    private JComboBox<String> comboBoxSimboloP1, comboBoxSimboloP2, comboBoxModoJogo, comboBoxNivelMaquina, comboBoxTabuleiro;
+    // Opções de tabuleiro (largura, altura, símbolos em linha), na mesma ordem do comboBoxTabuleiro.
+    private static final int[][] TAMANHOS_TABULEIRO = {{3, 3, 3}, {4, 4, 4}, {7, 6, 4}, {15, 15, 5}};
     // Botões para iniciar/reiniciar o jogo e ver o histórico.
-    private JButton btnIniciarReiniciar, btnHistoricoPartidas;
+    private JButton btnIniciarReiniciar, btnHistoricoPartidas, btnDesfazer, btnRefazer;
     // Labels para mostrar informações como o status atual e o total de jogadas.
     private JLabel lblStatus, lblJogadas;
 
-    // Lista para guardar os dados de todas as partidas jogadas nesta sessão.
-    private List<PartidaCompleta> historicoDePartidas = new ArrayList<>();
+    // Armazém em disco com todas as partidas terminadas (desta e das sessões anteriores).
+    // Fica null se não puder ser aberto; nesse caso o histórico fica indisponível.
+    private ArmazemPartidas armazem;
+    // Se a partida atual já foi gravada no armazém. Desfazer e refazer continuam disponíveis depois
+    // do fim, e a mesma partida não pode ser gravada de novo a cada vez que volta a terminar.
+    private boolean partidaSalva;
     // Flags para controlar o estado da interface.
     private boolean isMaquinaJogando = false; // Evita que o jogador clique enquanto a máquina "pensa".
+    // Escolha da máquina em andamento (null se não há nenhuma).
+    private CompletableFuture<Integer> jogadaMaquina;
+    // Delay antes da máquina jogar, para dar a impressão de que ela "pensa" (0 = joga logo).
+    // Pode ser trocado com -Djogodavelha.atrasoMaquinaMs=...
+    private static final long ATRASO_MAQUINA_MS = Long.getLong("jogodavelha.atrasoMaquinaMs", 1000);
+    // Thread em que a máquina escolhe as jogadas, fora da EDT; é daemon para não segurar a saída.
+    private static final ExecutorService EXECUTOR_MAQUINA = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "maquina");
+        thread.setDaemon(true);
+        return thread;
+    });
     private boolean modoVsMaquina = false;
     private int jogadorAtual = 1;
     private int totalJogadas = 0;
+    // Células que mudaram desde a última atualização da tela (marcadas pelo ouvinte do jogo).
+    private final BitSet celulasAlteradas = new BitSet();
 
     /**
-     * Classe interna para encapsular os dados de uma partida finalizada.
+     * Classe interna para encapsular os dados de uma partida finalizada, lida do armazém.
      * Facilita a exibição no histórico.
      */
     private static class PartidaCompleta {
-        private final String resultado;
-        private final LinkedHashMap<Integer, String> jogadas;
-        private static int proximoId = 1;
-        private final int id;
-
-        PartidaCompleta(String resultado, LinkedHashMap<Integer, String> jogadas) {
-            this.id = proximoId++;
-            this.resultado = resultado;
-            this.jogadas = jogadas;
+        private final long id;
+        private final ArmazemPartidas.PartidaGravada partida; // null se a leitura falhou.
+
+        PartidaCompleta(long id, ArmazemPartidas.PartidaGravada partida) {
+            this.id = id;
+            this.partida = partida;
         }
 
-        public LinkedHashMap<Integer, String> getJogadas() { return jogadas; }
+        public boolean isLida() { return partida != null; }
+
+        // As jogadas ficam no registro compacto (um long no 3x3), e não num mapa por partida.
+        public RegistroJogadas getJogadas() { return partida.getJogadas(); }
+
+        public String getSimbolo(int numeroJogador) { return partida.getSimbolo(numeroJogador); }
 
         // O método toString é usado para exibir a partida de forma amigável na lista do histórico.
         @Override
         public String toString() {
-            return "Partida " + id + ": " + resultado;
+            if (partida == null) {
+                return "Partida " + (id + 1) + ": não foi possível ler do histórico";
+            }
+            String resultado = descreverResultado(partida.getResultado(), partida.getSimbolo(1),
+                    partida.getSimbolo(2), partida.getNivelMaquina() > 0);
+            return "Partida " + (id + 1) + ": " + resultado + " em " + partida.getJogadas().tamanho() + " jogadas";
+        }
+    }
+
+    /**
+     * Modelo da lista do histórico que lê as partidas do armazém por páginas, sob demanda.
+     * Com células de altura fixa o JList só pede as linhas visíveis, então abrir o histórico custa
+     * o mesmo com dez partidas ou dez milhões; só as páginas lidas por último ficam em memória.
+     */
+    private static class ModeloHistorico extends AbstractListModel<PartidaCompleta> {
+        private static final long serialVersionUID = 1L;
+        private static final int TAMANHO_PAGINA = 128;
+        private static final int PAGINAS_EM_CACHE = 16;
+        private final transient ArmazemPartidas armazem;
+        private final int tamanho;
+        // Cache de mapeamento direto: a página p fica na vaga p % PAGINAS_EM_CACHE.
+        private final PartidaCompleta[][] paginas = new PartidaCompleta[PAGINAS_EM_CACHE][];
+        private final long[] numeroDasPaginas = new long[PAGINAS_EM_CACHE];
+
+        ModeloHistorico(ArmazemPartidas armazem) {
+            this.armazem = armazem;
+            // O JList indexa com int; o tamanho é fixado quando o diálogo abre.
+            this.tamanho = (int) Math.min(Integer.MAX_VALUE, armazem.getQuantidade());
+        }
+
+        @Override
+        public int getSize() {
+            return tamanho;
+        }
+
+        @Override
+        public PartidaCompleta getElementAt(int indice) {
+            long pagina = indice / TAMANHO_PAGINA;
+            int vaga = (int) (pagina % PAGINAS_EM_CACHE);
+            if (paginas[vaga] == null || numeroDasPaginas[vaga] != pagina) {
+                paginas[vaga] = lerPagina(pagina);
+                numeroDasPaginas[vaga] = pagina;
+            }
+            return paginas[vaga][indice % TAMANHO_PAGINA];
+        }
+
+        private PartidaCompleta[] lerPagina(long pagina) {
+            long primeira = pagina * TAMANHO_PAGINA;
+            PartidaCompleta[] partidas = new PartidaCompleta[(int) Math.min(TAMANHO_PAGINA, tamanho - primeira)];
+            for (int i = 0; i < partidas.length; i++) {
+                ArmazemPartidas.PartidaGravada partida;
+                try {
+                    partida = armazem.ler(primeira + i);
+                } catch (IOException ex) {
+                    partida = null; // A linha mostra o erro; as demais continuam legíveis.
+                }
+                partidas[i] = new PartidaCompleta(primeira + i, partida);
+            }
+            return partidas;
+        }
+    }
+
+    /**
+     * Modelo da lista de jogadas de uma partida: cada linha é formatada só quando é exibida.
+     */
+    private static class ModeloJogadas extends AbstractListModel<String> {
+        private static final long serialVersionUID = 1L;
+        private final transient PartidaCompleta partida;
+
+        ModeloJogadas(PartidaCompleta partida) {
+            this.partida = partida;
+        }
+
+        @Override
+        public int getSize() {
+            return partida.getJogadas().tamanho();
+        }
+
+        @Override
+        public String getElementAt(int lance) {
+            RegistroJogadas jogadas = partida.getJogadas();
+            return "Jogada " + (lance + 1) + ": Símbolo '" + partida.getSimbolo(jogadas.jogador(lance))
+                    + "' na Posição " + jogadas.posicao(lance);
         }
     }
 
@@ -101,9 +211,37 @@ public class TelaJogo {
      */
     public TelaJogo() {
         initialize();
+        abrirArmazem();
         configurarEstadoInicialControles();
     }
 
+    /**
+     * Abre o armazém de partidas (diretório "partidas", ou o de -Djogodavelha.partidas=...)
+     * e o fecha junto com a janela.
+     */
+    private void abrirArmazem() {
+        Path diretorio = Paths.get(System.getProperty("jogodavelha.partidas", ArmazemPartidas.DIRETORIO_PADRAO));
+        try {
+            armazem = new ArmazemPartidas(diretorio);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(frmJogoDaVelha, "Não foi possível abrir o histórico em " + diretorio
+                    + ":\n" + ex.getMessage(), "Histórico Indisponível", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        // O botão de histórico já começa habilitado se houver partidas de sessões anteriores.
+        btnHistoricoPartidas.setEnabled(armazem.getQuantidade() > 0);
+        frmJogoDaVelha.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    armazem.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+    }
+
     /**
      * Monta todos os componentes visuais da janela (painéis, botões, labels).
      */
@@ -127,28 +265,16 @@ public class TelaJogo {
         comboBoxModoJogo.addActionListener(e -> atualizarVisibilidadeControlesModoJogo());
         painelControles.add(comboBoxModoJogo);
         painelControles.add(new JLabel("Nível:"));
-        comboBoxNivelMaquina = new JComboBox<>(new String[]{"Fácil (1)", "Difícil (2)"});
+        comboBoxNivelMaquina = new JComboBox<>(new String[]{"Fácil (1)", "Difícil (2)", "Perfeito (3)", "Busca Paralela (4)", "Monte Carlo (5)"});
         painelControles.add(comboBoxNivelMaquina);
+        painelControles.add(new JLabel("Tabuleiro:"));
+        comboBoxTabuleiro = new JComboBox<>(new String[]{"3x3", "4x4", "7x6 (4 em linha)", "15x15 (5 em linha)"});
+        painelControles.add(comboBoxTabuleiro);
         frmJogoDaVelha.getContentPane().add(painelControles, BorderLayout.NORTH);
 
-        // Painel central com o tabuleiro 3x3.
-        JPanel painelTabuleiro = new JPanel(new GridLayout(3, 3, 5, 5));
-        for (int i = 0; i < 9; i++) {
-            labelsTabuleiro[i] = new JLabel("", SwingConstants.CENTER);
-            labelsTabuleiro[i].setFont(new Font("Arial", Font.BOLD, 40));
-            labelsTabuleiro[i].setOpaque(true);
-            labelsTabuleiro[i].setBackground(Color.WHITE);
-            labelsTabuleiro[i].setBorder(BorderFactory.createLineBorder(Color.GRAY));
-            final int posicao = i; // Variável final para ser usada dentro do listener.
-            // Adiciona um "ouvinte" de clique a cada célula do tabuleiro.
-            labelsTabuleiro[i].addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    labelTabuleiroClicado(posicao);
-                }
-            });
-            painelTabuleiro.add(labelsTabuleiro[i]);
-        }
+        // Painel central com o tabuleiro (3x3 até que outro tamanho seja escolhido).
+        painelTabuleiro = new JPanel();
+        montarTabuleiroVisual(3, 3);
         frmJogoDaVelha.getContentPane().add(painelTabuleiro, BorderLayout.CENTER);
 
         // Painel inferior para exibir status e botões de ação.
@@ -164,6 +290,13 @@ public class TelaJogo {
         btnIniciarReiniciar = new JButton("Iniciar Jogo");
         btnIniciarReiniciar.addActionListener(e -> acaoIniciarReiniciarJogo());
         painelBotoesAcao.add(btnIniciarReiniciar);
+
+        btnDesfazer = new JButton("Desfazer");
+        btnDesfazer.addActionListener(e -> acaoDesfazer());
+        painelBotoesAcao.add(btnDesfazer);
+        btnRefazer = new JButton("Refazer");
+        btnRefazer.addActionListener(e -> acaoRefazer());
+        painelBotoesAcao.add(btnRefazer);
         
         btnHistoricoPartidas = new JButton("Histórico de Partidas");
         btnHistoricoPartidas.addActionListener(e -> mostrarHistoricoPartidas());
@@ -174,6 +307,42 @@ public class TelaJogo {
         frmJogoDaVelha.getContentPane().add(painelStatusAcoes, BorderLayout.SOUTH);
     }
 
+    /**
+     * Cria as células do tabuleiro na tela, com o GridLayout no tamanho do jogo.
+     * Só recria os labels se o tamanho mudou em relação ao tabuleiro atual.
+     * @param largura Número de colunas.
+     * @param altura Número de linhas.
+     */
+    private void montarTabuleiroVisual(int largura, int altura) {
+        if (labelsTabuleiro.length == largura * altura
+                && ((GridLayout) painelTabuleiro.getLayout()).getColumns() == largura) {
+            return;
+        }
+        painelTabuleiro.removeAll();
+        painelTabuleiro.setLayout(new GridLayout(altura, largura, 5, 5));
+        labelsTabuleiro = new JLabel[largura * altura];
+        // A fonte diminui conforme o tabuleiro cresce (40 no 3x3).
+        int tamanhoFonte = Math.max(14, 120 / Math.max(largura, altura));
+        for (int i = 0; i < labelsTabuleiro.length; i++) {
+            labelsTabuleiro[i] = new JLabel("", SwingConstants.CENTER);
+            labelsTabuleiro[i].setFont(new Font("Arial", Font.BOLD, tamanhoFonte));
+            labelsTabuleiro[i].setOpaque(true);
+            labelsTabuleiro[i].setBackground(Color.WHITE);
+            labelsTabuleiro[i].setBorder(BorderFactory.createLineBorder(Color.GRAY));
+            final int posicao = i; // Variável final para ser usada dentro do listener.
+            // Adiciona um "ouvinte" de clique a cada célula do tabuleiro.
+            labelsTabuleiro[i].addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    labelTabuleiroClicado(posicao);
+                }
+            });
+            painelTabuleiro.add(labelsTabuleiro[i]);
+        }
+        painelTabuleiro.revalidate();
+        painelTabuleiro.repaint();
+    }
+
     /**
      * Reseta a interface para o estado inicial, antes de um jogo começar.
      */
@@ -181,10 +350,13 @@ public class TelaJogo {
         limparTabuleiroVisual();
         comboBoxSimboloP1.setEnabled(true);
         comboBoxModoJogo.setEnabled(true);
+        comboBoxTabuleiro.setEnabled(true);
         atualizarVisibilidadeControlesModoJogo();
         btnIniciarReiniciar.setText("Iniciar Jogo");
         lblStatus.setText("Configure o jogo e clique em Iniciar.");
         lblJogadas.setText("Jogadas: 0");
+        btnDesfazer.setEnabled(false);
+        btnRefazer.setEnabled(false);
         jogo = null; // A instância do jogo é descartada.
     }
     
@@ -201,18 +373,21 @@ public class TelaJogo {
      * Ação do botão "Iniciar/Reiniciar". Cria uma nova instância de JogoDaVelha.
      */
     private void acaoIniciarReiniciarJogo() {
+        cancelarJogadaMaquina();
         try {
             String simboloP1 = (String) comboBoxSimboloP1.getSelectedItem();
             this.modoVsMaquina = "Jogador vs Máquina".equals(comboBoxModoJogo.getSelectedItem());
+            int[] tamanho = TAMANHOS_TABULEIRO[comboBoxTabuleiro.getSelectedIndex()];
 
             // Cria o objeto 'jogo' com o construtor apropriado, conforme o modo.
             if (modoVsMaquina) {
-                int nivel = "Difícil (2)".equals(comboBoxNivelMaquina.getSelectedItem()) ? 2 : 1;
-                jogo = new JogoDaVelha(simboloP1, nivel);
+                int nivel = comboBoxNivelMaquina.getSelectedIndex() + 1; // Os itens estão na ordem dos níveis.
+                jogo = new JogoDaVelha(simboloP1, nivel, tamanho[0], tamanho[1], tamanho[2]);
             } else {
                 String simboloP2 = (String) comboBoxSimboloP2.getSelectedItem();
-                jogo = new JogoDaVelha(simboloP1, simboloP2);
+                jogo = new JogoDaVelha(simboloP1, simboloP2, tamanho[0], tamanho[1], tamanho[2]);
             }
+            partidaSalva = false;
             configurarParaJogoEmAndamento();
         } catch (IllegalArgumentException ex) {
             // Captura erros de configuração (ex: símbolos iguais) e exibe uma mensagem.
@@ -225,15 +400,67 @@ public class TelaJogo {
      * Configura a interface para um jogo que está acontecendo (trava configurações).
      */
     private void configurarParaJogoEmAndamento() {
+        montarTabuleiroVisual(jogo.getLargura(), jogo.getAltura());
         limparTabuleiroVisual();
+        celulasAlteradas.clear();
+        jogo.adicionarOuvinte((j, posicao, dono) -> celulasAlteradas.set(posicao));
         this.jogadorAtual = 1;
         this.totalJogadas = 0;
-        // Desabilita as opções de configuração durante a partida.
+        travarConfiguracao();
+        btnIniciarReiniciar.setText("Reiniciar Jogo");
+        atualizarInterface();
+    }
+
+    /**
+     * Desabilita as opções de configuração durante a partida.
+     */
+    private void travarConfiguracao() {
         comboBoxSimboloP1.setEnabled(false);
         comboBoxSimboloP2.setEnabled(false);
         comboBoxModoJogo.setEnabled(false);
         comboBoxNivelMaquina.setEnabled(false);
-        btnIniciarReiniciar.setText("Reiniciar Jogo");
+        comboBoxTabuleiro.setEnabled(false);
+    }
+
+    /**
+     * Ação do botão "Desfazer". Contra a máquina, desfaz também a jogada dela,
+     * para que a vez volte ao jogador humano.
+     */
+    private void acaoDesfazer() {
+        if (jogo == null || isMaquinaJogando || !jogo.podeDesfazer()) return;
+        boolean estavaTerminado = jogo.terminou();
+        jogo.desfazer();
+        if (modoVsMaquina && jogo.getJogadorAtual() == 2 && jogo.podeDesfazer()) {
+            jogo.desfazer();
+        }
+        if (estavaTerminado) {
+            travarConfiguracao(); // A partida voltou a estar em andamento.
+        }
+        sincronizarComJogo();
+    }
+
+    /**
+     * Ação do botão "Refazer". Contra a máquina, refaz também a resposta dela, se houver;
+     * se não houver (ex.: a partida tinha acabado), a máquina joga de novo.
+     */
+    private void acaoRefazer() {
+        if (jogo == null || isMaquinaJogando || !jogo.podeRefazer()) return;
+        jogo.refazer();
+        if (modoVsMaquina && jogo.getJogadorAtual() == 2 && jogo.podeRefazer()) {
+            jogo.refazer();
+        }
+        sincronizarComJogo();
+        if (!jogo.terminou() && modoVsMaquina && this.jogadorAtual == 2) {
+            fazerJogadaMaquina();
+        }
+    }
+
+    /**
+     * Acerta a vez e o contador de jogadas da tela com o jogo depois de desfazer/refazer.
+     */
+    private void sincronizarComJogo() {
+        this.jogadorAtual = jogo.getJogadorAtual();
+        this.totalJogadas = jogo.getQuantidadeJogadas();
         atualizarInterface();
     }
 
@@ -249,11 +476,11 @@ public class TelaJogo {
 
     /**
      * Chamado quando uma célula do tabuleiro é clicada.
-     * @param posicao A posição (0-8) que foi clicada.
+     * @param posicao A posição (0-8 no 3x3) que foi clicada.
      */
     private void labelTabuleiroClicado(int posicao) {
         // Ignora o clique se o jogo não começou, já terminou, ou se a máquina está jogando.
-        if (jogo == null || jogo.terminou() || isMaquinaJogando || !labelsTabuleiro[posicao].getText().isEmpty()) {
+        if (jogo == null || jogo.terminou() || isMaquinaJogando || jogo.getDonoCelula(posicao) != 0) {
             return;
         }
 
@@ -264,7 +491,7 @@ public class TelaJogo {
             this.jogadorAtual = (this.jogadorAtual == 1) ? 2 : 1; // Troca o turno.
             atualizarInterface();
 
-            // Se for a vez da máquina, chama a jogada dela.
+            // Se for a vez da máquina, chama a jogada dela (terminou() é só a leitura de um campo).
             if (!jogo.terminou() && modoVsMaquina && this.jogadorAtual == 2) {
                 fazerJogadaMaquina();
             }
@@ -274,25 +501,49 @@ public class TelaJogo {
     }
 
     /**
-     * Orquestra a jogada da máquina com um pequeno delay para simular que ela está "pensando".
+     * Orquestra a jogada da máquina sem travar a interface: a escolha roda na thread da máquina,
+     * depois de um pequeno delay para simular que ela está "pensando", e a jogada é aplicada de
+     * volta na thread do Swing (EDT). O botão Reiniciar cancela uma escolha em andamento.
      */
     private void fazerJogadaMaquina() {
         isMaquinaJogando = true;
+        btnDesfazer.setEnabled(false);
+        btnRefazer.setEnabled(false);
         lblStatus.setText("Máquina (" + jogo.getSimbolo(2) + ") está pensando...");
 
-        // Usamos um Timer para dar um efeito visual e não travar a interface.
-        Timer timer = new Timer(1000, e -> { // Delay de 1 segundo (1000 ms).
-            try {
-                jogo.jogaMaquina(); // Chama a lógica da máquina.
+        final JogoDaVelha jogoDaJogada = jogo;
+        Executor quemEscolhe = ATRASO_MAQUINA_MS > 0
+                ? CompletableFuture.delayedExecutor(ATRASO_MAQUINA_MS, TimeUnit.MILLISECONDS, EXECUTOR_MAQUINA)
+                : EXECUTOR_MAQUINA;
+        jogadaMaquina = CompletableFuture.supplyAsync(jogoDaJogada::escolherJogadaMaquina, quemEscolhe);
+        jogadaMaquina.whenCompleteAsync((posicao, erro) -> {
+            // Ignora o resultado se o jogo foi reiniciado (ou a escolha cancelada) nesse meio tempo.
+            if (jogo != jogoDaJogada || !isMaquinaJogando) return;
+            isMaquinaJogando = false;
+            jogadaMaquina = null;
+            if (erro != null) {
+                JOptionPane.showMessageDialog(frmJogoDaVelha, "A máquina não conseguiu jogar: " + erro.getMessage(),
+                        "Erro da Máquina", JOptionPane.ERROR_MESSAGE);
+            } else {
+                jogo.jogaMaquina(posicao); // A máquina é sempre o jogador 2.
                 this.totalJogadas++;
                 this.jogadorAtual = 1; // Volta o turno para o jogador humano.
-            } finally {
-                isMaquinaJogando = false;
-                atualizarInterface(); // Atualiza a tela após a jogada da máquina.
             }
-        });
-        timer.setRepeats(false); // O timer executa apenas uma vez.
-        timer.start();
+            atualizarInterface(); // Atualiza a tela após a jogada da máquina.
+        }, EventQueue::invokeLater);
+    }
+
+    /**
+     * Cancela a escolha da máquina em andamento, se houver. Só é chamado ao abandonar a partida
+     * atual, então a busca dela pode ser interrompida de vez.
+     */
+    private void cancelarJogadaMaquina() {
+        if (jogadaMaquina != null) {
+            jogadaMaquina.cancel(false); // Se a escolha ainda não começou, ela nem chega a rodar.
+            jogo.interromperBusca(); // Se já começou, a busca para no próximo controle do relógio.
+            jogadaMaquina = null;
+        }
+        isMaquinaJogando = false;
     }
 
     /**
@@ -301,34 +552,37 @@ public class TelaJogo {
     private void atualizarInterface() {
         if (jogo == null) return;
         
-        // Pega a "foto" do tabuleiro da classe de lógica e atualiza os labels.
-        String foto = jogo.getFoto();
-        String[] celulasFlat = foto.replace("\n-----\n", " | ").split(" \\| ");
-        for (int i = 0; i < 9; i++) {
-            labelsTabuleiro[i].setText(celulasFlat[i].trim());
+        // Redesenha só as células que o jogo avisou que mudaram desde a última atualização.
+        for (int pos = celulasAlteradas.nextSetBit(0); pos >= 0; pos = celulasAlteradas.nextSetBit(pos + 1)) {
+            int dono = jogo.getDonoCelula(pos);
+            labelsTabuleiro[pos].setText(dono == 0 ? "" : jogo.getSimbolo(dono));
         }
+        celulasAlteradas.clear();
 
+        btnDesfazer.setEnabled(!isMaquinaJogando && jogo.podeDesfazer());
+        btnRefazer.setEnabled(!isMaquinaJogando && jogo.podeRefazer());
         lblJogadas.setText("Jogadas: " + this.totalJogadas);
 
-        // Verifica se o jogo terminou para exibir o resultado.
-        if (jogo.terminou()) {
-            String statusFinal;
-            int resultado = jogo.getResultado();
-            if (resultado == 0) {
-                statusFinal = "Empate!";
-            } else {
-                String simboloVencedor = jogo.getSimbolo(resultado);
-                String nomeVencedor = (modoVsMaquina && resultado == 2) ? "Máquina" : "Jogador " + resultado;
-                statusFinal = nomeVencedor + " (" + simboloVencedor + ") venceu!";
-            }
-            lblStatus.setText(statusFinal);
+        // Verifica se o jogo terminou para exibir o resultado (uma única consulta ao jogo).
+        int resultado = jogo.getResultado();
+        if (resultado != -1) {
+            lblStatus.setText(descreverResultado(resultado, jogo.getSimbolo(1), jogo.getSimbolo(2), modoVsMaquina));
             
-            // Salva a partida concluída no nosso histórico.
-            historicoDePartidas.add(new PartidaCompleta(statusFinal + " em " + this.totalJogadas + " jogadas", jogo.getHistorico()));
-            
-            // Habilita o botão de histórico se ele ainda não estiver.
-            if (!btnHistoricoPartidas.isEnabled()) {
-                btnHistoricoPartidas.setEnabled(true);
+            // Salva a partida concluída no armazém. Na interface as partidas são poucas, então cada
+            // uma já é descarregada para o disco; o acúmulo em lote serve às gravações em massa.
+            if (armazem != null && !partidaSalva) {
+                try {
+                    armazem.acrescentar(jogo);
+                    armazem.descarregar();
+                    partidaSalva = true;
+                    // Habilita o botão de histórico se ele ainda não estiver.
+                    if (!btnHistoricoPartidas.isEnabled()) {
+                        btnHistoricoPartidas.setEnabled(true);
+                    }
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(frmJogoDaVelha, "Não foi possível salvar a partida: " + ex.getMessage(),
+                            "Erro no Histórico", JOptionPane.ERROR_MESSAGE);
+                }
             }
             
             configurarControlesParaFimDeJogo();
@@ -339,12 +593,28 @@ public class TelaJogo {
         }
     }
 
+    /**
+     * Monta o texto do resultado de uma partida terminada.
+     * @param resultado 0 (empate), 1 ou 2 (vencedor).
+     * @param maquina Se o jogador 2 é a máquina.
+     * @return O texto, ex.: "Jogador 1 (X) venceu!".
+     */
+    private static String descreverResultado(int resultado, String simbolo1, String simbolo2, boolean maquina) {
+        if (resultado == 0) {
+            return "Empate!";
+        }
+        String simboloVencedor = resultado == 1 ? simbolo1 : simbolo2;
+        String nomeVencedor = (maquina && resultado == 2) ? "Máquina" : "Jogador " + resultado;
+        return nomeVencedor + " (" + simboloVencedor + ") venceu!";
+    }
+
     /**
      * Libera os controles de configuração para que um novo jogo possa ser iniciado.
      */
     private void configurarControlesParaFimDeJogo() {
         comboBoxSimboloP1.setEnabled(true);
         comboBoxModoJogo.setEnabled(true);
+        comboBoxTabuleiro.setEnabled(true);
         atualizarVisibilidadeControlesModoJogo();
         btnIniciarReiniciar.setText("Iniciar Novo Jogo");
     }
@@ -358,12 +628,12 @@ public class TelaJogo {
         dialogoHistorico.setLocationRelativeTo(frmJogoDaVelha); // Centraliza na janela principal.
         dialogoHistorico.setLayout(new BorderLayout(10, 10));
 
-        // Usa um JList para exibir a lista de partidas.
-        DefaultListModel<PartidaCompleta> listModel = new DefaultListModel<>();
-        historicoDePartidas.forEach(listModel::addElement);
-
-        JList<PartidaCompleta> listaPartidas = new JList<>(listModel);
+        // Usa um JList para exibir a lista de partidas, lidas do armazém só quando aparecem na tela.
+        JList<PartidaCompleta> listaPartidas = new JList<>(new ModeloHistorico(armazem));
         listaPartidas.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Com altura e largura fixas o JList não precisa medir (e portanto ler) todas as linhas.
+        listaPartidas.setFixedCellHeight(20);
+        listaPartidas.setFixedCellWidth(360);
         JScrollPane scrollPane = new JScrollPane(listaPartidas);
         
         JButton btnVerJogadas = new JButton("Ver Jogadas");
@@ -371,7 +641,7 @@ public class TelaJogo {
 
         listaPartidas.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                btnVerJogadas.setEnabled(!listaPartidas.isSelectionEmpty());
+                btnVerJogadas.setEnabled(!listaPartidas.isSelectionEmpty() && listaPartidas.getSelectedValue().isLida());
             }
         });
 
@@ -399,25 +669,19 @@ public class TelaJogo {
      * @param partida A partida selecionada na tela de histórico.
      */
     private void exibirDetalhesDaPartida(PartidaCompleta partida) {
-        StringBuilder detalhes = new StringBuilder();
-        detalhes.append("Detalhes da ").append(partida.toString()).append("\n\n");
-        
-        int nJogada = 1;
-        // Percorre o mapa de histórico da partida para formatar a exibição.
-        for (Map.Entry<Integer, String> jogada : partida.getJogadas().entrySet()) {
-            detalhes.append("Jogada ").append(nJogada++).append(": ");
-            detalhes.append("Símbolo '").append(jogada.getValue()).append("' ");
-            detalhes.append("na Posição ").append(jogada.getKey()).append("\n");
-        }
-
-        // Usa um JTextArea dentro de um JScrollPane para o caso de o histórico ser longo.
-        JTextArea textArea = new JTextArea(detalhes.toString());
-        textArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(textArea);
+        // As jogadas são formatadas pelo modelo só quando aparecem na tela, direto do registro compacto.
+        JList<String> listaJogadas = new JList<>(new ModeloJogadas(partida));
+        listaJogadas.setFixedCellHeight(18);
+        listaJogadas.setFixedCellWidth(300);
+        listaJogadas.setVisibleRowCount(12);
+        JPanel painelDetalhes = new JPanel(new BorderLayout(5, 5));
+        painelDetalhes.add(new JLabel("Detalhes da " + partida), BorderLayout.NORTH);
+        // Usa um JScrollPane para o caso de o histórico ser longo.
+        painelDetalhes.add(new JScrollPane(listaJogadas), BorderLayout.CENTER);
         
         // Oferece a opção de voltar para a lista ou fechar tudo.
         Object[] options = {"Voltar ao Histórico", "Fechar"};
-        int result = JOptionPane.showOptionDialog(frmJogoDaVelha, scrollPane, "Detalhes da Partida",
+        int result = JOptionPane.showOptionDialog(frmJogoDaVelha, painelDetalhes, "Detalhes da Partida",
                                                 JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE,
                                                 null, options, options[1]); 
 
@@ -0,0 +1,336 @@
+package projeto;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Torneio todos contra todos entre estratégias da máquina ({@link EstrategiaMaquina}), sem interface
+ * gráfica. Cada par de estratégias joga o mesmo número de partidas com cada uma como jogador 1.
+ * As partidas são tarefas de um ForkJoinPool (o intervalo de partidas é dividido ao meio até
+ * ficar pequeno), então os núcleos que terminam antes roubam o trabalho dos outros, inclusive
+ * quando um confronto é muito mais lento que os demais (ex.: os que envolvem a busca do nível 4).
+ * Como no {@link SimulacaoEmLote}, cada partida recebe uma semente derivada da semente do torneio
+ * e do seu número, então os confrontos entre os níveis 1, 2, 3 e 5 (e o aprendiz) não dependem do
+ * número de threads. Os que envolvem o nível 4 podem variar: a busca para no fim de um orçamento de
+ * tempo, e a tabela de transposição de cada thread guarda o que viu nas partidas que ela já jogou,
+ * que mudam conforme o roubo de trabalho.
+ *
+ * Os resultados saem enquanto o torneio roda: uma linha por confronto assim que ele termina e,
+ * periodicamente, a classificação parcial com o Elo de cada estratégia e o seu intervalo de 95%.
+ *
+ * Uso: java projeto.TorneioMaquinas partidasPorConfronto [niveis, ex.: 1,2,4] [threads] [semente] [largura altura alinhamento]
+ * Na lista de níveis, "aprendiz" (ou "aprendiz=arquivo") inclui a máquina treinada pelo {@link AprendizReforco}.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+public class TorneioMaquinas {
+
+    // --- ATRIBUTOS --- //
+    // Constante de Weyl (razão áurea em 64 bits) usada para espalhar as sementes das partidas.
+    private static final long GAMA = 0x9E3779B97F4A7C15L;
+    // Orçamentos das buscas dos níveis 4 e 5: cada partida já ocupa um núcleo (ver SimulacaoEmLote).
+    private static final long ORCAMENTO_BUSCA_MS = 10;
+    private static final int SIMULACOES_MONTE_CARLO = 2_000;
+    // Até quantas partidas uma tarefa joga sem se dividir.
+    private static final int PARTIDAS_POR_TAREFA = 4;
+    private static final long INTERVALO_CLASSIFICACAO_MS = 2000;
+    // Quantil da normal para o intervalo de confiança de 95%.
+    private static final double Z_95 = 1.96;
+
+    private final String[] nomes;
+    private final EstrategiaMaquina[] estrategias;
+    private final int partidasPorConfronto;
+    private final int threads;
+    private final long semente;
+    private final int largura, altura, alinhamento;
+    private final PrintStream saida;
+    // Resultados por confronto (a como jogador 1, b como jogador 2), no índice a * n + b.
+    private final AtomicIntegerArray vitorias1, vitorias2, empates, restantes;
+    // Motores dos níveis 4 e 5, um par por thread do torneio, usados por todas as partidas que ela
+    // joga (criar os motores por partida alocaria a tabela da busca paralela a cada uma). Com 1
+    // thread, cada motor busca na própria thread do torneio, sem pool, então os confrontos de nível
+    // 4 e 5 ocupam de fato todos os núcleos; o preço são os 16 MiB da tabela da busca por thread.
+    private final ThreadLocal<BuscaParalela> buscas =
+            ThreadLocal.withInitial(() -> new BuscaParalela(1, ORCAMENTO_BUSCA_MS));
+    private final ThreadLocal<BuscaMonteCarlo> monteCarlos =
+            ThreadLocal.withInitial(() -> new BuscaMonteCarlo(1, SIMULACOES_MONTE_CARLO, 0));
+
+    /**
+     * Prepara o torneio.
+     * @param nomes Os nomes das estratégias, para o relatório.
+     * @param estrategias As estratégias (pelo menos duas).
+     * @param partidasPorConfronto Partidas de cada par com cada estratégia como jogador 1.
+     * @param threads Quantas threads jogam as partidas.
+     * @param semente Semente do torneio.
+     * @param saida Para onde os resultados são escritos.
+     */
+    TorneioMaquinas(String[] nomes, EstrategiaMaquina[] estrategias, int partidasPorConfronto, int threads, long semente,
+                    int largura, int altura, int alinhamento, PrintStream saida) {
+        if (estrategias.length < 2 || nomes.length != estrategias.length) {
+            throw new IllegalArgumentException("O torneio precisa de pelo menos 2 estratégias, cada uma com o seu nome.");
+        }
+        if (partidasPorConfronto < 1) {
+            throw new IllegalArgumentException("Cada confronto precisa de pelo menos 1 partida.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("O torneio precisa de pelo menos 1 thread.");
+        }
+        new JogoDaVelha("X", "O", largura, altura, alinhamento); // Valida as dimensões antes de começar.
+        this.nomes = nomes.clone();
+        this.estrategias = estrategias.clone();
+        this.partidasPorConfronto = partidasPorConfronto;
+        this.threads = threads;
+        this.semente = semente;
+        this.largura = largura;
+        this.altura = altura;
+        this.alinhamento = alinhamento;
+        this.saida = saida;
+        int n = estrategias.length;
+        this.vitorias1 = new AtomicIntegerArray(n * n);
+        this.vitorias2 = new AtomicIntegerArray(n * n);
+        this.empates = new AtomicIntegerArray(n * n);
+        this.restantes = new AtomicIntegerArray(n * n);
+        for (int a = 0; a < n; a++) {
+            for (int b = 0; b < n; b++) {
+                if (a != b) restantes.set(a * n + b, partidasPorConfronto);
+            }
+        }
+    }
+
+    /**
+     * Ponto de entrada do torneio entre os níveis da máquina.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java projeto.TorneioMaquinas partidasPorConfronto [niveis, ex.: 1,2,4]"
+                    + " [threads] [semente] [largura altura alinhamento]");
+            System.exit(2);
+        }
+        int partidas = Integer.parseInt(args[0]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long semente = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+        int largura = args.length > 6 ? Integer.parseInt(args[4]) : JogoDaVelha.TAMANHO_CLASSICO;
+        int altura = args.length > 6 ? Integer.parseInt(args[5]) : JogoDaVelha.TAMANHO_CLASSICO;
+        int alinhamento = args.length > 6 ? Integer.parseInt(args[6]) : JogoDaVelha.TAMANHO_CLASSICO;
+        // Sem a lista, todos os níveis disponíveis no tabuleiro (o 3 só existe no clássico).
+        String niveis = args.length > 1 ? args[1]
+                : JogoDaVelha.ehClassico(largura, altura, alinhamento) ? "1,2,3,4,5" : "1,2,4,5";
+
+        String[] partes = niveis.split(",");
+        String[] nomes = new String[partes.length];
+        EstrategiaMaquina[] estrategias = new EstrategiaMaquina[partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            String parte = partes[i].trim();
+            if (parte.equals("aprendiz") || parte.startsWith("aprendiz=")) {
+                String arquivo = parte.equals("aprendiz") ? AprendizReforco.ARQUIVO_PADRAO : parte.substring("aprendiz=".length());
+                nomes[i] = "aprendiz";
+                estrategias[i] = AprendizReforco.carregar(Paths.get(arquivo)).estrategia();
+                continue;
+            }
+            int nivel = Integer.parseInt(parte);
+            if (nivel == 3 && !JogoDaVelha.ehClassico(largura, altura, alinhamento)) {
+                throw new IllegalArgumentException("O nível 3 (perfeito) só está disponível no tabuleiro 3x3.");
+            }
+            nomes[i] = "nivel " + nivel;
+            estrategias[i] = EstrategiaMaquina.doNivel(nivel);
+        }
+        new TorneioMaquinas(nomes, estrategias, partidas, threads, semente, largura, altura, alinhamento, System.out).executar();
+    }
+
+    // --- MÉTODOS --- //
+
+    /**
+     * Joga o torneio inteiro, escrevendo os resultados à medida que saem.
+     */
+    void executar() throws InterruptedException {
+        int n = estrategias.length;
+        int total = n * (n - 1) * partidasPorConfronto;
+        saida.printf("Torneio entre %d estratégias, %d partidas (%d por confronto e cor), tabuleiro %dx%d com %d em linha, %d threads, semente %d%n",
+                n, total, partidasPorConfronto, largura, altura, alinhamento, threads, semente);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long inicio = System.nanoTime();
+        try {
+            ForkJoinTask<Void> torneio = pool.submit(new Partidas(0, total));
+            while (true) {
+                try {
+                    torneio.get(INTERVALO_CLASSIFICACAO_MS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    imprimirClassificacao("Parcial");
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha durante o torneio.", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        imprimirClassificacao("Final");
+        saida.printf("%d partidas em %.2fs: %.0f partidas/s%n", total, segundos, total / segundos);
+    }
+
+    /**
+     * Um intervalo de partidas do torneio. A partida g pertence ao confronto g / partidasPorConfronto;
+     * os confrontos são numerados pelo par ordenado (a, b), com a != b.
+     */
+    private final class Partidas extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int inicio, fim;
+
+        Partidas(int inicio, int fim) {
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio <= PARTIDAS_POR_TAREFA) {
+                for (int g = inicio; g < fim; g++) {
+                    jogar(g);
+                }
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new Partidas(inicio, meio), new Partidas(meio, fim));
+        }
+    }
+
+    /**
+     * Joga uma partida do torneio e anuncia o confronto, se ela foi a última dele.
+     */
+    private void jogar(int partida) {
+        int n = estrategias.length;
+        int confronto = partida / partidasPorConfronto;
+        int a = confronto / (n - 1);
+        int b = confronto % (n - 1);
+        if (b >= a) b++; // Pula o confronto de a contra si mesma.
+
+        JogoDaVelha jogo = new JogoDaVelha("X", "O", largura, altura, alinhamento);
+        jogo.definirSemente(semente + partida * GAMA);
+        jogo.usarMotores(buscas.get(), monteCarlos.get());
+        while (!jogo.terminou()) {
+            int jogador = jogo.getJogadorAtual();
+            EstrategiaMaquina estrategia = estrategias[jogador == 1 ? a : b];
+            jogo.jogaJogador(jogador, jogo.escolherJogada(estrategia));
+        }
+
+        int indice = a * n + b;
+        switch (jogo.getResultado()) {
+            case 1: vitorias1.incrementAndGet(indice); break;
+            case 2: vitorias2.incrementAndGet(indice); break;
+            default: empates.incrementAndGet(indice); break;
+        }
+        if (restantes.decrementAndGet(indice) == 0) {
+            saida.printf("Confronto %s (jogador 1) x %s (jogador 2): %d vitórias, %d empates, %d derrotas%n",
+                    nomes[a], nomes[b], vitorias1.get(indice), empates.get(indice), vitorias2.get(indice));
+        }
+    }
+
+    /**
+     * Calcula o Elo de cada estratégia com os resultados até agora e imprime a classificação.
+     * O Elo é o que melhor explica os placares de todos os confrontos (ajuste iterativo de máxima
+     * verossimilhança, empate valendo meio ponto), com a média das estratégias em 0. O intervalo
+     * de 95% vem do desvio-padrão dos pontos por partida de cada estratégia contra o campo.
+     */
+    private void imprimirClassificacao(String titulo) {
+        int n = estrategias.length;
+        // Lê os placares uma vez só: as partidas continuam terminando enquanto isso.
+        double[][] pontos = new double[n][n];
+        int[][] partidas = new int[n][n];
+        int[] vitorias = new int[n], empatesTotal = new int[n], derrotas = new int[n];
+        for (int a = 0; a < n; a++) {
+            for (int b = 0; b < n; b++) {
+                if (a == b) continue;
+                int i = a * n + b;
+                int v1 = vitorias1.get(i), v2 = vitorias2.get(i), e = empates.get(i);
+                pontos[a][b] += v1 + 0.5 * e;
+                pontos[b][a] += v2 + 0.5 * e;
+                partidas[a][b] += v1 + v2 + e;
+                partidas[b][a] += v1 + v2 + e;
+                vitorias[a] += v1;
+                derrotas[a] += v2;
+                vitorias[b] += v2;
+                derrotas[b] += v1;
+                empatesTotal[a] += e;
+                empatesTotal[b] += e;
+            }
+        }
+        double[] elo = ajustarElo(pontos, partidas);
+
+        List<Integer> ordem = new ArrayList<>();
+        for (int i = 0; i < n; i++) ordem.add(i);
+        ordem.sort(Comparator.comparingDouble(i -> -elo[i]));
+        saida.printf("%s:%n  %-3s %-16s %7s %7s %8s %6s %6s %6s %7s%n",
+                titulo, "#", "estratégia", "elo", "±95%", "partidas", "V", "E", "D", "pontos");
+        int posicao = 1;
+        for (int i : ordem) {
+            int jogadas = vitorias[i] + empatesTotal[i] + derrotas[i];
+            saida.printf("  %-3d %-16s %7.0f %7s %8d %6d %6d %6d %6.1f%%%n",
+                    posicao++, nomes[i], elo[i], intervalo(vitorias[i], empatesTotal[i], derrotas[i]),
+                    jogadas, vitorias[i], empatesTotal[i], derrotas[i],
+                    jogadas == 0 ? 0 : 100.0 * (vitorias[i] + 0.5 * empatesTotal[i]) / jogadas);
+        }
+    }
+
+    /**
+     * Ajusta os Elos pelo método de Newton, uma estratégia de cada vez, até os pontos esperados
+     * baterem com os obtidos. Cada estratégia ganha um empate fictício contra um adversário de Elo 0,
+     * para quem venceu ou perdeu todas não ir ao infinito.
+     */
+    static double[] ajustarElo(double[][] pontos, int[][] partidas) {
+        int n = pontos.length;
+        double[] elo = new double[n];
+        double escala = Math.log(10) / 400;
+        for (int iteracao = 0; iteracao < 200; iteracao++) {
+            for (int i = 0; i < n; i++) {
+                double ficticio = 1 / (1 + Math.pow(10, -elo[i] / 400));
+                double obtidos = 0.5, esperados = ficticio, derivada = ficticio * (1 - ficticio) * escala;
+                for (int j = 0; j < n; j++) {
+                    if (i == j || partidas[i][j] == 0) continue;
+                    double p = 1 / (1 + Math.pow(10, (elo[j] - elo[i]) / 400));
+                    obtidos += pontos[i][j];
+                    esperados += partidas[i][j] * p;
+                    derivada += partidas[i][j] * p * (1 - p) * escala;
+                }
+                elo[i] += (obtidos - esperados) / derivada;
+            }
+            double media = Arrays.stream(elo).average().orElse(0);
+            for (int i = 0; i < n; i++) elo[i] -= media;
+        }
+        return elo;
+    }
+
+    /**
+     * Meia largura do intervalo de 95% do Elo de desempenho, a partir das vitórias, empates e derrotas.
+     */
+    private static String intervalo(int vitorias, int empates, int derrotas) {
+        int jogadas = vitorias + empates + derrotas;
+        if (jogadas < 2) return "-";
+        double media = (vitorias + 0.5 * empates) / jogadas;
+        double variancia = (vitorias * Math.pow(1 - media, 2) + empates * Math.pow(0.5 - media, 2)
+                + derrotas * Math.pow(media, 2)) / jogadas;
+        double erro = Math.sqrt(variancia / jogadas);
+        double meiaLargura = (eloDaPontuacao(media + Z_95 * erro) - eloDaPontuacao(media - Z_95 * erro)) / 2;
+        return String.format("%.0f", meiaLargura);
+    }
+
+    /**
+     * Diferença de Elo que corresponde a uma pontuação média (limitada a 0,1% e 99,9%).
+     */
+    private static double eloDaPontuacao(double pontuacao) {
+        double p = Math.min(0.999, Math.max(0.001, pontuacao));
+        return -400 * Math.log10(1 / p - 1);
+    }
+}
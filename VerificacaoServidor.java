@@ -0,0 +1,188 @@
+package projeto;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cliente roteirizado que confere o {@link ServidorJogos} de ponta a ponta, pela rede local.
+ * Sobe um servidor numa porta livre, conecta em 127.0.0.1 e, só pelo protocolo de texto:
+ * joga uma partida inteira entre duas conexões (CRIAR, ENTRAR e JOGAR alternados) e confere a
+ * vitória do jogador 1; joga uma partida inteira contra o nível 3 e confere que a máquina não
+ * perdeu; sai com SAIR e confere que o servidor fecha a conexão; derruba a outra conexão sem
+ * SAIR e confere, por STATUS numa conexão nova, que as partidas terminadas expiram e o
+ * servidor fica sem nenhuma sessão.
+ *
+ * Uso: java projeto.VerificacaoServidor
+ * Termina com código 0 se tudo conferiu, ou 1 mostrando o primeiro passo que falhou.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class VerificacaoServidor {
+
+    // --- ATRIBUTOS --- //
+    // TTL curto das partidas terminadas, para a limpeza ser vista em poucos segundos.
+    private static final long TTL_TERMINADAS_MS = 200;
+    // Quanto esperar pela expiração (o servidor varre o registro uma vez por segundo).
+    private static final long ESPERA_LIMPEZA_MS = 10_000;
+    private static final int TEMPO_LEITURA_MS = 5_000;
+
+    private VerificacaoServidor() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    /**
+     * Uma conexão de texto com o servidor: um comando por linha, uma resposta por comando.
+     */
+    private static final class Cliente implements Closeable {
+        final Socket socket;
+        final BufferedReader entrada;
+        final PrintWriter saida;
+
+        Cliente(int porta) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), porta);
+            socket.setSoTimeout(TEMPO_LEITURA_MS);
+            entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            saida = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), true);
+        }
+
+        /**
+         * Envia um comando e devolve a resposta (null se o servidor fechou a conexão).
+         */
+        String enviar(String comando) throws IOException {
+            saida.println(comando);
+            String resposta = entrada.readLine();
+            System.out.println("  " + comando + " -> " + resposta);
+            return resposta;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Executa o roteiro contra um servidor novo e imprime cada passo.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        try (ServidorJogos servidor = new ServidorJogos(0, 2, ServidorJogos.CAPACIDADE_PADRAO,
+                ServidorJogos.TTL_OCIOSAS_PADRAO_MS, TTL_TERMINADAS_MS)) {
+            int porta = servidor.getPorta();
+            System.out.println("Servidor em 127.0.0.1:" + porta);
+            try (Cliente jogador1 = new Cliente(porta)) {
+                try (Cliente jogador2 = new Cliente(porta)) {
+                    partidaEntreConexoes(jogador1, jogador2);
+                    sair(jogador2);
+                }
+                partidaContraMaquina(jogador1);
+            } // Fecha a conexão do jogador 1 sem SAIR.
+            limpezaDepoisDaDesconexao(porta);
+            conferir(servidor.getQuantidadeSessoes() == 0, "o servidor ainda hospeda partidas");
+            System.out.println("Tudo conferido.");
+        } catch (IllegalStateException e) {
+            System.out.println("FALHOU: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // --- PASSOS DO ROTEIRO --- //
+
+    /**
+     * Dois jogadores em conexões diferentes; o jogador 1 completa a linha de cima.
+     */
+    private static void partidaEntreConexoes(Cliente jogador1, Cliente jogador2) throws IOException {
+        System.out.println("Partida entre duas conexões:");
+        String id = criada(jogador1.enviar("CRIAR"), "1");
+        conferir(("OK " + id + " 2").equals(jogador2.enviar("ENTRAR " + id)), "o jogador 2 não entrou na partida");
+        int[] jogadas = {0, 3, 1, 4, 2};
+        String[] estado = null;
+        for (int i = 0; i < jogadas.length; i++) {
+            Cliente vez = i % 2 == 0 ? jogador1 : jogador2;
+            estado = estado(vez.enviar("JOGAR " + id + ' ' + jogadas[i]), id);
+        }
+        conferir(estado[5].equals("0") && estado[6].equals("1"), "a partida não terminou com a vitória do jogador 1");
+        conferir(estado[7].equals("11122...."), "o tabuleiro final não é o esperado: " + estado[7]);
+        String[] consulta = estado(jogador2.enviar("ESTADO " + id), id);
+        conferir(consulta[6].equals("1"), "a consulta não mostra o resultado da partida");
+        conferir(jogador1.enviar("JOGAR " + id + " 8").startsWith("ERRO "), "o servidor aceitou jogada numa partida terminada");
+    }
+
+    /**
+     * O jogador sempre ocupa a primeira célula livre; a máquina perfeita responde dentro do JOGAR.
+     */
+    private static void partidaContraMaquina(Cliente jogador) throws IOException {
+        System.out.println("Partida contra o nível 3:");
+        String id = criada(jogador.enviar("CRIAR 3"), "1");
+        String[] estado = estado(jogador.enviar("ESTADO " + id), id);
+        while (!estado[5].equals("0")) {
+            conferir(estado[5].equals("1"), "a vez não voltou para o jogador depois da máquina");
+            estado = estado(jogador.enviar("JOGAR " + id + ' ' + estado[7].indexOf('.')), id);
+        }
+        conferir(!estado[6].equals("1"), "a máquina perfeita perdeu");
+        conferir(!estado[6].equals("-1"), "a partida acabou sem resultado");
+    }
+
+    /**
+     * SAIR é respondido com OK e a conexão é fechada pelo servidor.
+     */
+    private static void sair(Cliente cliente) throws IOException {
+        System.out.println("Saída:");
+        conferir("OK".equals(cliente.enviar("SAIR")), "SAIR não foi respondido com OK");
+        conferir(cliente.entrada.readLine() == null, "o servidor não fechou a conexão depois do SAIR");
+    }
+
+    /**
+     * Com os jogadores desconectados, as duas partidas terminadas expiram e nada fica para trás.
+     */
+    private static void limpezaDepoisDaDesconexao(int porta) throws IOException, InterruptedException {
+        System.out.println("Limpeza depois das desconexões:");
+        try (Cliente observador = new Cliente(porta)) {
+            long limite = System.currentTimeMillis() + ESPERA_LIMPEZA_MS;
+            String[] status;
+            do {
+                Thread.sleep(500);
+                status = observador.enviar("STATUS").split(" ");
+                conferir(status.length == 5 && status[0].equals("STATUS"), "resposta inesperada ao STATUS");
+            } while (!status[1].equals("0") && System.currentTimeMillis() < limite);
+            conferir(status[1].equals("0"), "as partidas terminadas não expiraram");
+            conferir(status[2].equals("2") && status[3].equals("2"), "o servidor não criou e expirou exatamente 2 partidas");
+            conferir(observador.enviar("ESTADO 1").startsWith("ERRO "), "a partida 1 continua consultável");
+        }
+    }
+
+    // --- MÉTODOS PRIVADOS --- //
+
+    /**
+     * Confere a resposta de CRIAR e devolve o id da partida.
+     */
+    private static String criada(String resposta, String lugar) {
+        String[] partes = resposta == null ? new String[0] : resposta.split(" ");
+        conferir(partes.length == 3 && partes[0].equals("OK") && partes[2].equals(lugar),
+                "resposta inesperada ao CRIAR: " + resposta);
+        return partes[1];
+    }
+
+    /**
+     * Confere uma resposta ESTADO da partida e devolve os campos:
+     * ESTADO id largura altura alinhamento vez resultado celulas.
+     */
+    private static String[] estado(String resposta, String id) {
+        String[] partes = resposta == null ? new String[0] : resposta.split(" ");
+        conferir(partes.length == 8 && partes[0].equals("ESTADO") && partes[1].equals(id),
+                "resposta inesperada: " + resposta);
+        return partes;
+    }
+
+    private static void conferir(boolean condicao, String falha) {
+        if (!condicao) {
+            throw new IllegalStateException(falha);
+        }
+    }
+}
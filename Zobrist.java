@@ -0,0 +1,49 @@
+package projeto;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chaves de Zobrist para identificar posições por um único long.
+ * Cada par (célula, jogador) recebe um número aleatório de 64 bits; o hash de uma posição
+ * é o XOR das chaves das células ocupadas, então jogar ou desfazer uma jogada custa um XOR.
+ * As chaves são geradas com semente fixa: o mesmo tabuleiro dá o mesmo hash em qualquer execução.
+ * @author [Felipe Antonio Ramalho Macedo - 20232370036]
+ * @author [Francisco Viana Maia Neto - 20232370011]
+ */
+final class Zobrist {
+
+    // --- ATRIBUTOS --- //
+    private static final long SEMENTE = 0x6A6F676F64617665L; // "jogodave"
+    // Chaves já geradas, por número de células: cada jogo e cada busca reaproveitam o mesmo array.
+    private static final ConcurrentHashMap<Integer, long[]> CACHE = new ConcurrentHashMap<>();
+
+    private Zobrist() {
+        // Classe utilitária, não deve ser instanciada.
+    }
+
+    /**
+     * Retorna as chaves de um tabuleiro, geradas uma vez e compartilhadas.
+     * O array devolvido é compartilhado e não pode ser modificado.
+     * @param totalCelulas Número de células do tabuleiro.
+     * @return Um array com 2 * totalCelulas chaves (mesmo layout de {@link #gerarChaves(int)}).
+     */
+    static long[] chaves(int totalCelulas) {
+        return CACHE.computeIfAbsent(totalCelulas, Zobrist::gerarChaves);
+    }
+
+    /**
+     * Gera as chaves de um tabuleiro com o número de células indicado.
+     * A chave do jogador j (1 ou 2) na posição p fica no índice 2 * p + (j - 1).
+     * @param totalCelulas Número de células do tabuleiro.
+     * @return Um array com 2 * totalCelulas chaves.
+     */
+    static long[] gerarChaves(int totalCelulas) {
+        SplittableRandom aleatorio = new SplittableRandom(SEMENTE);
+        long[] chaves = new long[2 * totalCelulas];
+        for (int i = 0; i < chaves.length; i++) {
+            chaves[i] = aleatorio.nextLong();
+        }
+        return chaves;
+    }
+}